@@ -0,0 +1,20 @@
+package carshare.service;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Seeded database for point lookups and writes, from ten thousand to ten million cars
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData extends SeededDatabase {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int cars;
+
+    @Override
+    protected int volume() {
+        return cars;
+    }
+}
@@ -0,0 +1,56 @@
+package carshare.service;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs all service benchmarks and writes results as JSON, so runs of different releases can be compared.
+ * Throughput and latency percentiles come from benchmark modes, allocation rate comes from GC profiler.
+ * Database is embedded H2 in the same JVM, so allocation figures include allocations of H2 itself,
+ * they are comparable between runs but not equal to allocations of service code alone.
+ * Fork heap is fixed, so runs on machines with different memory are comparable,
+ * it is set by system property benchmark.heap (default 4g).
+ * <p>
+ * Arguments: release name (default "local"), optional comma separated volumes of cars, for example 10000,100000.
+ * Results are written to benchmark-results/{release}-{timestamp}.json.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(final String[] args) throws RunnerException, IOException {
+        String release = args.length > 0 ? args[0] : "local";
+        String heap = System.getProperty("benchmark.heap", "4g");
+        Path results = Paths.get("benchmark-results");
+        Files.createDirectories(results);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .jvmArgs("-Xms" + heap, "-Xmx" + heap)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(10))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(10))
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.resolve(release + "-" + timestamp + ".json").toString());
+        if (args.length > 1) {
+            options.param("cars", args[1].split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,37 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of car creation, lookup by id, full list and first page
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CarServiceBenchmark {
+
+    @Benchmark
+    public Car create(final BenchmarkData data) throws Exception {
+        return data.bean(CarService.class).create(data.newCar());
+    }
+
+    @Benchmark
+    public Car getById(final BenchmarkData data) throws Exception {
+        return data.bean(CarService.class).getById(data.randomCarId());
+    }
+
+    @Benchmark
+    public KeysetPage<Car> getPage(final BenchmarkData data) {
+        return data.bean(CarService.class).getPage(null, 100, FetchPlan.CAR_CARD);
+    }
+
+    @Benchmark
+    public List<Car> getAll(final FullScanData data) {
+        return data.bean(CarService.class).getAll();
+    }
+}
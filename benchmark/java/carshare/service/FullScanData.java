@@ -0,0 +1,20 @@
+package carshare.service;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Seeded database for methods which load the whole table, so volumes stop where the table still fits in heap
+ */
+@State(Scope.Benchmark)
+public class FullScanData extends SeededDatabase {
+
+    @Param({"10000", "100000"})
+    public int cars;
+
+    @Override
+    protected int volume() {
+        return cars;
+    }
+}
@@ -0,0 +1,21 @@
+package carshare.service;
+
+import carshare.database.entity.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of image lookup by id
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageServiceBenchmark {
+
+    @Benchmark
+    public Image getById(final BenchmarkData data) throws Exception {
+        return data.bean(ImageService.class).getById(data.randomImageId());
+    }
+}
@@ -0,0 +1,181 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import carshare.database.entity.Image;
+import carshare.database.entity.Role;
+import carshare.database.entity.User;
+import carshare.enums.Sex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded database seeded with given amount of cars, shared by all threads of one benchmark trial.
+ * Every car belongs to one verified owner, every tenth car has an image.
+ * Seed data is persisted chunk by chunk with JDBC batching, only sample of ids is kept in memory.
+ * VINs and plate numbers come from a counter, so they never collide, and any failed seed item fails the trial.
+ * Volumes above IN_MEMORY_LIMIT are kept in file database in work directory, so table does not have to fit in fork heap.
+ */
+public abstract class SeededDatabase {
+
+    static final String LOGIN = "benchmark_login";
+    static final String PASSWORD = "benchmark_password";
+
+    private static final int SEED_SLICE = 100000;
+    private static final int SAMPLE_SIZE = 10000;
+    private static final int CARS_PER_IMAGE = 10;
+    private static final int IN_MEMORY_LIMIT = 100000;
+
+    private final AtomicLong carCounter = new AtomicLong();
+    ConfigurableApplicationContext context;
+    User owner;
+    private final List<UUID> carIds = new ArrayList<>();
+    private final List<UUID> imageIds = new ArrayList<>();
+    private Path workDir;
+
+    /**
+     * Method return amount of cars to seed
+     *
+     * @return                                  Amount of cars
+     */
+    protected abstract int volume();
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        workDir = Files.createTempDirectory("carshare-benchmark");
+        String url = volume() > IN_MEMORY_LIMIT
+                ? "jdbc:h2:file:" + workDir.resolve("benchmark")
+                : "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=1000",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "carshare.batch.chunk-size=1000",
+                        "carshare.search.rebuild-on-startup=false",
+                        "carshare.search.full-text.dir=" + workDir.resolve("search-index"),
+                        "carshare.uniqueness.snapshot=" + workDir.resolve("uniqueness.bloom"),
+                        "carshare.images.storage-dir=" + workDir.resolve("images"),
+                        "logging.level.root=WARN")
+                .run();
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    <T> T bean(final Class<T> type) {
+        return context.getBean(type);
+    }
+
+    UUID randomCarId() {
+        return carIds.get(ThreadLocalRandom.current().nextInt(carIds.size()));
+    }
+
+    UUID randomImageId() {
+        return imageIds.get(ThreadLocalRandom.current().nextInt(imageIds.size()));
+    }
+
+    Car newCar() {
+        long number = carCounter.incrementAndGet();
+        Car car = new Car(UUID.randomUUID(), "BRAND", "MODEL", "COLOR", "DESCRIPTION", LocalDateTime.now(),
+                "TYPE", "FUEL", "TRANSMISSION", null, null);
+        car.setVin(String.format("BENCH%012d", number));
+        car.setNumber(String.format("%08d", number));
+        car.setUser(owner);
+        return car;
+    }
+
+    private void seed() throws Exception {
+        EntityManager entityManager = bean(EntityManager.class);
+        BatchWriter batchWriter = bean(BatchWriter.class);
+        Role role = new Role(UUID.randomUUID(), "USER", "USER");
+        owner = newUser(LOGIN, bean(PasswordEncoder.class).encode(PASSWORD));
+        owner.setRoles(Collections.singleton(role));
+        checkSeeded(batchWriter.write(Collections.singletonList(role), item -> {
+            entityManager.persist(item);
+            entityManager.persist(owner);
+            return item.getId();
+        }));
+        int step = Math.max(1, volume() / SAMPLE_SIZE);
+        for (int seeded = 0; seeded < volume(); seeded += SEED_SLICE) {
+            List<Object> slice = new ArrayList<>();
+            for (int i = seeded; i < Math.min(volume(), seeded + SEED_SLICE); i++) {
+                Car car = newCar();
+                slice.add(car);
+                if (i % step == 0) {
+                    carIds.add(car.getId());
+                }
+                if (i % CARS_PER_IMAGE == 0) {
+                    Image image = new Image(UUID.randomUUID(), "benchmark/" + car.getId() + ".jpg", car);
+                    slice.add(image);
+                    if (imageIds.size() < SAMPLE_SIZE) {
+                        imageIds.add(image.getId());
+                    }
+                }
+            }
+            checkSeeded(batchWriter.write(slice, item -> {
+                entityManager.persist(item);
+                return item;
+            }));
+        }
+    }
+
+    private static void checkSeeded(final List<? extends BatchItemResult<?>> results) {
+        for (BatchItemResult<?> result : results) {
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Seed item " + result.getIndex() + " is not written: "
+                        + result.getError());
+            }
+        }
+    }
+
+    private static User newUser(final String login, final String password) {
+        return new User(UUID.randomUUID(), "BENCHMARK", "BENCHMARK", "BENCHMARK", login,
+                password, true, LocalDateTime.now(), login + "@carshare.test", "380000000000",
+                Sex.MALE, LocalDateTime.now(), "url", null, null, null);
+    }
+
+    /**
+     * Application context of benchmarks: every carshare component with embedded database and without web server
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan("carshare")
+    @EntityScan("carshare.database.entity")
+    @EnableJpaRepositories("carshare.database.repository")
+    static class BenchmarkApplication {
+    }
+}
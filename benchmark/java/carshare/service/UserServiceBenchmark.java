@@ -0,0 +1,34 @@
+package carshare.service;
+
+import carshare.controller.dto.JwtDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.security.core.userdetails.UserDetails;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of login and of loading user details with warm and cold cache
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserServiceBenchmark {
+
+    @Benchmark
+    public JwtDTO login(final BenchmarkData data) {
+        return data.bean(UserService.class).login(SeededDatabase.LOGIN, SeededDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername(final BenchmarkData data) {
+        return data.bean(CustomUserDetailsService.class).loadUserByUsername(SeededDatabase.LOGIN);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsernameUncached(final BenchmarkData data) {
+        CustomUserDetailsService userDetailsService = data.bean(CustomUserDetailsService.class);
+        userDetailsService.evict(SeededDatabase.LOGIN);
+        return userDetailsService.loadUserByUsername(SeededDatabase.LOGIN);
+    }
+}
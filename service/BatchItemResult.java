@@ -0,0 +1,57 @@
+package carshare.service;
+
+/**
+ * Result of one item of batch operation
+ *
+ * @param <T>                                   Type of result value
+ */
+public class BatchItemResult<T> {
+
+    private final int index;
+    private final T value;
+    private final String error;
+
+    private BatchItemResult(final int index, final T value, final String error) {
+        this.index = index;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * Method create result of successfully processed item
+     *
+     * @param index                             Position of item in batch
+     * @param value                             Result value
+     * @return                                  Successful result
+     */
+    public static <T> BatchItemResult<T> success(final int index, final T value) {
+        return new BatchItemResult<>(index, value, null);
+    }
+
+    /**
+     * Method create result of failed item
+     *
+     * @param index                             Position of item in batch
+     * @param error                             Reason of failure
+     * @return                                  Failed result
+     */
+    public static <T> BatchItemResult<T> failure(final int index, final String error) {
+        return new BatchItemResult<>(index, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,218 @@
+package carshare.service;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Writes big amount of items in chunked transactions with JDBC batching.
+ * Every chunk is written in its own transaction and flushed as one JDBC batch.
+ * If chunk fails on database level, its items are written again one by one,
+ * so one bad item does not roll back the whole batch.
+ * Before items are written again, identifiers and versions which rolled back persist
+ * assigned to items and to their cascaded entities are reset to values from before the chunk.
+ */
+@Component
+public class BatchWriter {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public BatchWriter(
+            final EntityManager entityManager,
+            final PlatformTransactionManager transactionManager,
+            @Value("${carshare.batch.chunk-size:500}") final int chunkSize
+    ) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Writer of one batch item
+     *
+     * @param <T>                               Type of item
+     * @param <R>                               Type of result
+     */
+    @FunctionalInterface
+    public interface ItemWriter<T, R> {
+
+        /**
+         * Method write one item. Checked exception marks only this item as failed,
+         * runtime exception marks whole chunk as failed.
+         *
+         * @param item                          Item to write
+         * @return                              Result of writing
+         * @throws Exception                    if item is invalid
+         */
+        R write(T item) throws Exception;
+    }
+
+    /**
+     * Method write all items chunk by chunk
+     *
+     * @param items                             Items to write
+     * @param writer                            Writer of one item
+     * @return                                  Result for every item in order of items
+     */
+    public <T, R> List<BatchItemResult<R>> write(final List<T> items, final ItemWriter<T, R> writer) {
+        return write(items, chunk -> { }, writer);
+    }
+
+    /**
+     * Method write all items chunk by chunk
+     *
+     * @param items                             Items to write
+     * @param beforeChunk                       Action which runs in chunk transaction before items are written,
+     *                                          for example to load all entities of chunk by one query
+     * @param writer                            Writer of one item
+     * @return                                  Result for every item in order of items
+     */
+    public <T, R> List<BatchItemResult<R>> write(final List<T> items, final Consumer<List<T>> beforeChunk,
+                                                 final ItemWriter<T, R> writer) {
+        List<BatchItemResult<R>> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            int to = Math.min(items.size(), from + chunkSize);
+            results.addAll(writeChunk(items.subList(from, to), from, beforeChunk, writer));
+        }
+        return results;
+    }
+
+    private <T, R> List<BatchItemResult<R>> writeChunk(final List<T> chunk, final int offset,
+                                                       final Consumer<List<T>> beforeChunk,
+                                                       final ItemWriter<T, R> writer) {
+        Map<Object, Object[]> states = new IdentityHashMap<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(chunk.size());
+                captureStates(chunk, states);
+                beforeChunk.accept(chunk);
+                List<BatchItemResult<R>> results = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(writeItem(chunk.get(i), offset + i, writer));
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return results;
+            });
+        } catch (RuntimeException e) {
+            restoreStates(states);
+            List<BatchItemResult<R>> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(writeSingle(chunk.get(i), offset + i, beforeChunk, writer));
+            }
+            return results;
+        }
+    }
+
+    private <T, R> BatchItemResult<R> writeSingle(final T item, final int index,
+                                                  final Consumer<List<T>> beforeChunk,
+                                                  final ItemWriter<T, R> writer) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<T> single = new ArrayList<>(1);
+                single.add(item);
+                beforeChunk.accept(single);
+                BatchItemResult<R> result = writeItem(item, index, writer);
+                entityManager.flush();
+                entityManager.clear();
+                return result;
+            });
+        } catch (RuntimeException e) {
+            return BatchItemResult.failure(index, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void captureStates(final List<?> chunk, final Map<Object, Object[]> states) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object item : chunk) {
+            captureState(item, session, states, visited);
+        }
+    }
+
+    private void captureState(final Object entity, final SessionImplementor session,
+                              final Map<Object, Object[]> states, final Set<Object> visited) {
+        if (entity == null || !Hibernate.isInitialized(entity) || !visited.add(entity)) {
+            return;
+        }
+        EntityPersister persister = persisterOf(entity, session);
+        if (persister == null) {
+            return;
+        }
+        states.put(entity, new Object[]{
+                persister.getIdentifier(entity, session),
+                persister.isVersioned() ? persister.getVersion(entity) : null
+        });
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (!persister.getPropertyCascadeStyles()[i].doCascade(CascadingActions.PERSIST)
+                    && !persister.getPropertyCascadeStyles()[i].doCascade(CascadingActions.MERGE)) {
+                continue;
+            }
+            Object value = persister.getPropertyValue(entity, i);
+            if (!Hibernate.isInitialized(value)) {
+                continue;
+            }
+            if (types[i].isEntityType()) {
+                captureState(value, session, states, visited);
+            } else if (value instanceof Collection) {
+                ((Collection<?>) value).forEach(element -> captureState(element, session, states, visited));
+            } else if (value instanceof Map) {
+                ((Map<?, ?>) value).values().forEach(element -> captureState(element, session, states, visited));
+            }
+        }
+    }
+
+    private void restoreStates(final Map<Object, Object[]> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            states.forEach((entity, state) -> {
+                EntityPersister persister = persisterOf(entity, session);
+                persister.setIdentifier(entity, (Serializable) state[0], session);
+                if (persister.isVersioned()) {
+                    persister.setPropertyValue(entity, persister.getVersionProperty(), state[1]);
+                }
+            });
+        });
+    }
+
+    private static EntityPersister persisterOf(final Object entity, final SessionImplementor session) {
+        return session.getFactory().getMetamodel().entityPersisters()
+                .get(Hibernate.getClass(entity).getName());
+    }
+
+    private static <T, R> BatchItemResult<R> writeItem(final T item, final int index,
+                                                       final ItemWriter<T, R> writer) {
+        try {
+            return BatchItemResult.success(index, writer.write(item));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            return BatchItemResult.failure(index, e.getMessage());
+        }
+    }
+}
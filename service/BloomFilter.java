@@ -0,0 +1,145 @@
+package carshare.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings.
+ * Filter answers "definitely not added" or "possibly added", added values can not be removed.
+ * Bit positions are derived with double hashing from two independent 64-bit hashes of UTF-8 bytes.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    private BloomFilter(final AtomicLongArray words, final int hashes) {
+        this.words = words;
+        this.bits = (long) words.length() * Long.SIZE;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Method create empty filter sized for expected amount of values and false positive probability
+     *
+     * @param expectedInsertions                Expected amount of values
+     * @param falsePositiveProbability          Acceptable probability of false "possibly added" answer
+     * @return                                  Empty filter
+     */
+    public static BloomFilter create(final long expectedInsertions, final double falsePositiveProbability) {
+        long insertions = Math.max(1, expectedInsertions);
+        double probability = Math.min(0.5, Math.max(1e-9, falsePositiveProbability));
+        long bits = (long) Math.ceil(-insertions * Math.log(probability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE));
+        int hashes = (int) Math.max(1, Math.round((double) words * Long.SIZE / insertions * Math.log(2)));
+        return new BloomFilter(new AtomicLongArray(words), hashes);
+    }
+
+    /**
+     * Method accepts value and add it to filter
+     *
+     * @param value                             Value, null is ignored
+     */
+    public void put(final String value) {
+        if (value == null) {
+            return;
+        }
+        long[] hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            long bit = position(hash, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * Method check if value could have been added to filter
+     *
+     * @param value                             Value
+     * @return                                  False if value was definitely not added, true if it possibly was
+     */
+    public boolean mightContain(final String value) {
+        if (value == null) {
+            return false;
+        }
+        long[] hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            long bit = position(hash, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method write filter bits to output
+     *
+     * @param output                            Output stream
+     * @throws IOException                      if filter can not be written
+     */
+    public void writeTo(final DataOutputStream output) throws IOException {
+        output.writeInt(hashes);
+        output.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            output.writeLong(words.get(i));
+        }
+    }
+
+    /**
+     * Method read filter written by writeTo
+     *
+     * @param input                             Input stream
+     * @return                                  Filter with read bits
+     * @throws IOException                      if filter can not be read
+     */
+    public static BloomFilter readFrom(final DataInputStream input) throws IOException {
+        int hashes = input.readInt();
+        int length = input.readInt();
+        AtomicLongArray words = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            words.set(i, input.readLong());
+        }
+        return new BloomFilter(words, hashes);
+    }
+
+    /**
+     * Method return size of filter
+     *
+     * @return                                  Amount of bits
+     */
+    public long bitSize() {
+        return bits;
+    }
+
+    private long position(final long[] hash, final int i) {
+        long combined = hash[0] + i * hash[1];
+        return (combined & Long.MAX_VALUE) % bits;
+    }
+
+    private static long[] hash(final String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long fnv = 0xcbf29ce484222325L;
+        long polynomial = 0x9e3779b97f4a7c15L;
+        for (byte b : bytes) {
+            fnv = (fnv ^ (b & 0xff)) * 0x100000001b3L;
+            polynomial = polynomial * 31 + (b & 0xff);
+        }
+        return new long[]{mix(fnv), mix(polynomial) | 1};
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,147 @@
+package carshare.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small in-memory cache with max size and time to live of entries.
+ * When cache is full the least recently used entry is evicted.
+ * Cache counts hits, misses and evictions for monitoring.
+ *
+ * @param <K>                                   Type of key
+ * @param <V>                                   Type of cached value
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation;
+
+    public BoundedTtlCache(final int maxSize, final Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Method return cached value by key
+     *
+     * @param key                               Key of value
+     * @return                                  Cached value or null if it is missing or expired
+     */
+    public synchronized V get(final K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt >= ttlNanos) {
+            entries.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Method accepts key and value and put it to cache
+     *
+     * @param key                               Key of value
+     * @param value                             Value for caching
+     */
+    public synchronized void put(final K key, final V value) {
+        if (maxSize > 0) {
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Method return generation of cache, it is changed by every invalidation.
+     * Caller takes generation before it loads value from database and passes it to putIfNotInvalidated,
+     * so value which was loaded before concurrent change is not cached after change is invalidated.
+     *
+     * @return                                  Current generation
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Method accepts key and value and put it to cache if nothing was invalidated since generation was taken
+     *
+     * @param key                               Key of value
+     * @param value                             Value for caching
+     * @param loadedAt                          Generation taken before value was loaded
+     * @return                                  False if value is not cached because of invalidation
+     */
+    public synchronized boolean putIfNotInvalidated(final K key, final V value, final long loadedAt) {
+        if (generation != loadedAt) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * Method remove value from cache by key
+     *
+     * @param key                               Key of value
+     */
+    public synchronized void invalidate(final K key) {
+        entries.remove(key);
+        generation++;
+    }
+
+    /**
+     * Method remove all values from cache
+     */
+    public synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * Method return amount of values in cache, including not yet evicted expired values
+     *
+     * @return                                  Amount of values
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Method return snapshot of cache statistics
+     *
+     * @return                                  Hits, misses, evictions and size of cache
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long createdAt;
+
+        private Entry(final V value, final long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import carshare.database.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Service for bulk import of users and cars from CSV or NDJSON files.
+ * File is parsed incrementally on separate thread and handed over by bounded queue of chunks,
+ * so parser waits when database writing is slower (back-pressure) and memory stays bounded.
+ * Every written chunk is checkpointed, so interrupted import continues from the last written chunk.
+ * Invalid record, for example NDJSON line which is not JSON object, fails only itself.
+ * Checkpoint is written after chunk is committed, so delivery is at-least-once: chunk which was
+ * committed right before crash is imported again on resume, its users and cars are rejected
+ * as duplicates by uniqueness checks and counted as failed records.
+ */
+@Service
+public class BulkImportService {
+
+    private final UserService userService;
+    private final CarService carService;
+    private final PasswordCostPolicy passwordCostPolicy;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int queuedChunks;
+
+    @Autowired
+    public BulkImportService(
+            final UserService userService,
+            final CarService carService,
+            final PasswordCostPolicy passwordCostPolicy,
+            final ObjectMapper objectMapper,
+            @Value("${carshare.batch.chunk-size:500}") final int chunkSize,
+            @Value("${carshare.import.queued-chunks:2}") final int queuedChunks
+    ) {
+        this.userService = userService;
+        this.carService = carService;
+        this.passwordCostPolicy = passwordCostPolicy;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.queuedChunks = Math.max(1, queuedChunks);
+    }
+
+    /**
+     * Method accepts file with users and create them in chunked batches
+     *
+     * @param input                             File content, it is not closed by this method
+     * @param format                            Format of file
+     * @param checkpoint                        File for import progress or null to import without checkpoints
+     * @return                                  Import counters and first failures
+     * @throws IOException                      if file or checkpoint can not be read or written
+     */
+    public ImportReport importUsers(final InputStream input, final ImportFormat format, final Path checkpoint)
+            throws IOException {
+        return importRecords(input, format, checkpoint, User.class, userService::createAll);
+    }
+
+    /**
+     * Method accepts file with cars and create them in chunked batches
+     *
+     * @param input                             File content, it is not closed by this method
+     * @param format                            Format of file
+     * @param checkpoint                        File for import progress or null to import without checkpoints
+     * @return                                  Import counters and first failures
+     * @throws IOException                      if file or checkpoint can not be read or written
+     */
+    public ImportReport importCars(final InputStream input, final ImportFormat format, final Path checkpoint)
+            throws IOException {
+        return importRecords(input, format, checkpoint, Car.class, carService::createAll);
+    }
+
+    private <T> ImportReport importRecords(final InputStream input, final ImportFormat format,
+                                           final Path checkpoint, final Class<T> type,
+                                           final Function<List<T>, List<BatchItemResult<T>>> writer)
+            throws IOException {
+        ImportReport report = new ImportReport();
+        long started = System.nanoTime();
+        long hashedBefore = passwordCostPolicy.getEncodeTimings().getCount();
+        long hashNanosBefore = passwordCostPolicy.getEncodeTimings().getTotalNanos();
+
+        long processed = readCheckpoint(checkpoint);
+        report.recordSkipped(processed);
+        BlockingQueue<Chunk<T>> queue = new ArrayBlockingQueue<>(queuedChunks);
+        Thread parser = new Thread(() -> parse(input, format, type, processed, queue, report),
+                "bulk-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+        try {
+            Chunk<T> chunk = queue.take();
+            while (!chunk.last) {
+                if (chunk.error != null) {
+                    throw new IOException("Import file can not be parsed.", chunk.error);
+                }
+                write(chunk, writer, report);
+                writeCheckpoint(checkpoint, chunk.lastRecordNumber);
+                chunk = queue.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import is interrupted.");
+        } finally {
+            parser.interrupt();
+        }
+        if (checkpoint != null) {
+            Files.deleteIfExists(checkpoint);
+        }
+        report.recordHashed(passwordCostPolicy.getEncodeTimings().getCount() - hashedBefore,
+                passwordCostPolicy.getEncodeTimings().getTotalNanos() - hashNanosBefore);
+        report.recordElapsed(System.nanoTime() - started);
+        return report;
+    }
+
+    private <T> void parse(final InputStream input, final ImportFormat format, final Class<T> type,
+                           final long skip, final BlockingQueue<Chunk<T>> queue, final ImportReport report) {
+        try {
+            Iterator<Map<String, Object>> records = open(input, format);
+            long recordNumber = 0;
+            while (recordNumber < skip && records.hasNext()) {
+                recordNumber++;
+                try {
+                    records.next();
+                } catch (IllegalArgumentException e) {
+                    // record was rejected before checkpoint
+                }
+            }
+            Chunk<T> chunk = new Chunk<>();
+            long parseStarted = System.nanoTime();
+            while (records.hasNext()) {
+                recordNumber++;
+                try {
+                    chunk.add(objectMapper.convertValue(records.next(), type), recordNumber);
+                } catch (IllegalArgumentException e) {
+                    chunk.reject(recordNumber, e.getMessage());
+                }
+                if (chunk.size() == chunkSize) {
+                    report.recordParsed(chunk.size(), System.nanoTime() - parseStarted);
+                    queue.put(chunk);
+                    chunk = new Chunk<>();
+                    parseStarted = System.nanoTime();
+                }
+            }
+            if (chunk.size() > 0) {
+                report.recordParsed(chunk.size(), System.nanoTime() - parseStarted);
+                queue.put(chunk);
+            }
+            queue.put(Chunk.last());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            try {
+                queue.put(Chunk.failed(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Iterator<Map<String, Object>> open(final InputStream input, final ImportFormat format) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (format == ImportFormat.NDJSON) {
+            return new NdjsonRecordReader(reader, objectMapper);
+        }
+        return new CsvRecordReader(reader);
+    }
+
+    private <T> void write(final Chunk<T> chunk, final Function<List<T>, List<BatchItemResult<T>>> writer,
+                           final ImportReport report) {
+        chunk.rejected.forEach(rejected -> report.addFailure(rejected.recordNumber, rejected.error));
+        long started = System.nanoTime();
+        List<BatchItemResult<T>> results = writer.apply(chunk.items);
+        long imported = 0;
+        for (BatchItemResult<T> result : results) {
+            if (result.isSuccess()) {
+                imported++;
+            } else {
+                report.addFailure(chunk.recordNumbers.get(result.getIndex()), result.getError());
+            }
+        }
+        report.recordWritten(imported, chunk.size() - imported, System.nanoTime() - started);
+    }
+
+    private static long readCheckpoint(final Path checkpoint) throws IOException {
+        if (checkpoint == null || !Files.exists(checkpoint)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? 0 : Long.parseLong(content);
+    }
+
+    private static void writeCheckpoint(final Path checkpoint, final long recordNumber) throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temporary, Long.toString(recordNumber).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Chunk<T> {
+
+        private final List<T> items = new ArrayList<>();
+        private final List<Long> recordNumbers = new ArrayList<>();
+        private final List<RejectedRecord> rejected = new ArrayList<>();
+        private long lastRecordNumber;
+        private boolean last;
+        private Exception error;
+
+        private static <T> Chunk<T> last() {
+            Chunk<T> chunk = new Chunk<>();
+            chunk.last = true;
+            return chunk;
+        }
+
+        private static <T> Chunk<T> failed(final Exception error) {
+            Chunk<T> chunk = new Chunk<>();
+            chunk.error = error;
+            return chunk;
+        }
+
+        private void add(final T item, final long recordNumber) {
+            items.add(item);
+            recordNumbers.add(recordNumber);
+            lastRecordNumber = recordNumber;
+        }
+
+        private void reject(final long recordNumber, final String error) {
+            rejected.add(new RejectedRecord(recordNumber, error));
+            lastRecordNumber = recordNumber;
+        }
+
+        private int size() {
+            return items.size() + rejected.size();
+        }
+    }
+
+    private static final class RejectedRecord {
+
+        private final long recordNumber;
+        private final String error;
+
+        private RejectedRecord(final long recordNumber, final String error) {
+            this.recordNumber = recordNumber;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Searchable field of car with its normalization.
+ * Values are compared case-insensitive, spaces and dashes in number and VIN are ignored.
+ */
+public enum CarSearchField {
+    BRAND(Car::getBrand, false),
+    MODEL(Car::getModel, false),
+    NUMBER(Car::getNumber, true),
+    VIN(Car::getVin, true);
+
+    private final Function<Car, String> valueOf;
+    private final boolean compact;
+
+    CarSearchField(final Function<Car, String> valueOf, final boolean compact) {
+        this.valueOf = valueOf;
+        this.compact = compact;
+    }
+
+    /**
+     * Method return normalized value of this field of car
+     *
+     * @param car                               Car data
+     * @return                                  Normalized value or null if field is empty
+     */
+    String valueOf(final Car car) {
+        return normalize(valueOf.apply(car));
+    }
+
+    /**
+     * Method return value in the same form as it is stored in search index
+     *
+     * @param value                             Raw value
+     * @return                                  Normalized value or null if value is empty
+     */
+    String normalize(final String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (compact) {
+            normalized = normalized.replaceAll("[\\s-]", "");
+        }
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
@@ -0,0 +1,72 @@
+package carshare.service;
+
+/**
+ * One condition of car search: exact or prefix match of field value
+ */
+public class CarSearchFilter {
+
+    private final CarSearchField field;
+    private final String value;
+    private final boolean prefix;
+
+    private CarSearchFilter(final CarSearchField field, final String value, final boolean prefix) {
+        this.field = field;
+        this.value = field.normalize(value);
+        this.prefix = prefix;
+    }
+
+    /**
+     * Method create filter which matches cars with equal field value
+     *
+     * @param field                             Searchable field
+     * @param value                             Value of field
+     * @return                                  Filter
+     */
+    public static CarSearchFilter exact(final CarSearchField field, final String value) {
+        return new CarSearchFilter(field, value, false);
+    }
+
+    /**
+     * Method create filter which matches cars which field value starts with given prefix
+     *
+     * @param field                             Searchable field
+     * @param prefix                            Prefix of field value
+     * @return                                  Filter
+     */
+    public static CarSearchFilter prefix(final CarSearchField field, final String prefix) {
+        return new CarSearchFilter(field, prefix, true);
+    }
+
+    public CarSearchField getField() {
+        return field;
+    }
+
+    /**
+     * Method return normalized value of filter
+     *
+     * @return                                  Value or null if filter value is empty
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Method check if normalized field value matches this filter
+     *
+     * @param fieldValue                        Normalized field value
+     * @return                                  True if value matches
+     */
+    boolean matches(final String fieldValue) {
+        if (value == null) {
+            return true;
+        }
+        if (fieldValue == null) {
+            return false;
+        }
+        return prefix ? fieldValue.startsWith(value) : fieldValue.equals(value);
+    }
+}
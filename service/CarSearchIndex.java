@@ -0,0 +1,320 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index of cars by brand, model, number and VIN.
+ * Every field has sorted map from normalized value to sorted set of car UUIDs,
+ * so exact match is one map lookup and prefix match is one sub map.
+ * The most selective filter drives the search, other filters are checked against indexed values of car,
+ * results are ordered by UUID and paged with UUID cursor like database pages.
+ * Reads are lock-free, writes are serialized. Rebuild fills fresh maps and swaps them in
+ * by one reference assignment, so searches during rebuild see the complete previous index.
+ */
+@Component
+public class CarSearchIndex {
+
+    private static final int MAX_MERGED_TERMS = 64;
+    private static final CarSearchField[] FIELDS = CarSearchField.values();
+
+    private volatile Segment segment = new Segment();
+
+    /**
+     * Method accepts car and add it to index or replace indexed values of the same car
+     *
+     * @param car                               Car data
+     */
+    public synchronized void index(final Car car) {
+        segment.index(car);
+    }
+
+    /**
+     * Method accepts UUID of car and remove car from index
+     *
+     * @param carId                             UUID of car
+     */
+    public synchronized void remove(final UUID carId) {
+        segment.remove(carId);
+    }
+
+    /**
+     * Method fill fresh index with given cars and replace current index with it.
+     * Writes wait for rebuild, searches use current index until it is replaced.
+     *
+     * @param cars                              Stream of all cars
+     * @return                                  Amount of indexed cars
+     */
+    public synchronized int rebuild(final Stream<Car> cars) {
+        Segment fresh = new Segment();
+        int[] indexed = {0};
+        cars.forEach(car -> {
+            fresh.index(car);
+            indexed[0]++;
+        });
+        segment = fresh;
+        return indexed[0];
+    }
+
+    /**
+     * Method return UUIDs of cars which match all filters, ordered by UUID
+     *
+     * @param filters                           Filters, all of them must match
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of UUIDs on page
+     * @return                                  Page of car UUIDs with cursor for the next page
+     */
+    public KeysetPage<UUID> search(final Collection<CarSearchFilter> filters, final UUID after, final int size) {
+        int pageSize = Math.max(1, Math.min(size, KeysetPager.MAX_PAGE_SIZE));
+        List<CarSearchFilter> activeFilters = new ArrayList<>();
+        for (CarSearchFilter filter : filters) {
+            if (filter.getValue() != null) {
+                activeFilters.add(filter);
+            }
+        }
+        Segment current = segment;
+        Iterator<UUID> candidates = current.candidates(activeFilters, after);
+        List<UUID> items = new ArrayList<>(pageSize);
+        while (candidates.hasNext()) {
+            UUID carId = candidates.next();
+            String[] values = current.documents.get(carId);
+            if (values == null || !matchesAll(activeFilters, values)) {
+                continue;
+            }
+            if (items.size() == pageSize) {
+                return new KeysetPage<>(items, items.get(pageSize - 1));
+            }
+            items.add(carId);
+        }
+        return new KeysetPage<>(items, null);
+    }
+
+    /**
+     * Method return amount of indexed cars
+     *
+     * @return                                  Amount of cars
+     */
+    public int size() {
+        return segment.documents.size();
+    }
+
+    private static boolean matchesAll(final List<CarSearchFilter> filters, final String[] values) {
+        for (CarSearchFilter filter : filters) {
+            if (!filter.matches(values[filter.getField().ordinal()])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NavigableSet<UUID> tail(final NavigableSet<UUID> set, final UUID after) {
+        return after == null ? set : set.tailSet(after, false);
+    }
+
+    /**
+     * Complete set of index maps, replaced as a whole on rebuild
+     */
+    private static final class Segment {
+
+        private final Map<CarSearchField, ConcurrentSkipListMap<String, Posting>> postings =
+                new EnumMap<>(CarSearchField.class);
+        private final ConcurrentSkipListSet<UUID> allIds = new ConcurrentSkipListSet<>();
+        private final Map<UUID, String[]> documents = new ConcurrentHashMap<>();
+
+        private Segment() {
+            for (CarSearchField field : FIELDS) {
+                postings.put(field, new ConcurrentSkipListMap<>());
+            }
+        }
+
+        private void index(final Car car) {
+            if (car == null || car.getId() == null) {
+                return;
+            }
+            String[] values = new String[FIELDS.length];
+            for (CarSearchField field : FIELDS) {
+                values[field.ordinal()] = field.valueOf(car);
+            }
+            String[] previous = documents.put(car.getId(), values);
+            for (CarSearchField field : FIELDS) {
+                String oldValue = previous == null ? null : previous[field.ordinal()];
+                String newValue = values[field.ordinal()];
+                if (oldValue != null && !oldValue.equals(newValue)) {
+                    removePosting(field, oldValue, car.getId());
+                }
+                if (newValue != null) {
+                    postings.get(field).computeIfAbsent(newValue, value -> new Posting()).add(car.getId());
+                }
+            }
+            allIds.add(car.getId());
+        }
+
+        private void remove(final UUID carId) {
+            String[] previous = documents.remove(carId);
+            if (previous == null) {
+                return;
+            }
+            allIds.remove(carId);
+            for (CarSearchField field : FIELDS) {
+                if (previous[field.ordinal()] != null) {
+                    removePosting(field, previous[field.ordinal()], carId);
+                }
+            }
+        }
+
+        private Iterator<UUID> candidates(final List<CarSearchFilter> filters, final UUID after) {
+            List<Posting> bestSets = null;
+            long bestSize = Long.MAX_VALUE;
+            for (CarSearchFilter filter : filters) {
+                List<Posting> sets = postingSets(filter);
+                if (sets == null) {
+                    continue;
+                }
+                long filterSize = 0;
+                for (Posting posting : sets) {
+                    filterSize += posting.size;
+                }
+                if (filterSize < bestSize) {
+                    bestSets = sets;
+                    bestSize = filterSize;
+                }
+            }
+            if (bestSets == null) {
+                return tail(allIds, after).iterator();
+            }
+            if (bestSets.size() == 1) {
+                return tail(bestSets.get(0).ids, after).iterator();
+            }
+            return new MergingIterator(bestSets, after);
+        }
+
+        /**
+         * Method return posting sets of filter or null if filter matches too many distinct values
+         * and it is cheaper to check it against indexed values of car
+         */
+        private List<Posting> postingSets(final CarSearchFilter filter) {
+            ConcurrentSkipListMap<String, Posting> fieldPostings = postings.get(filter.getField());
+            if (!filter.isPrefix()) {
+                Posting posting = fieldPostings.get(filter.getValue());
+                return Collections.singletonList(posting == null ? new Posting() : posting);
+            }
+            ConcurrentNavigableMap<String, Posting> range =
+                    fieldPostings.subMap(filter.getValue(), true, filter.getValue() + Character.MAX_VALUE, false);
+            List<Posting> sets = new ArrayList<>();
+            for (Posting posting : range.values()) {
+                if (sets.size() == MAX_MERGED_TERMS) {
+                    return null;
+                }
+                sets.add(posting);
+            }
+            return sets;
+        }
+
+        private void removePosting(final CarSearchField field, final String value, final UUID carId) {
+            ConcurrentSkipListMap<String, Posting> fieldPostings = postings.get(field);
+            Posting posting = fieldPostings.get(value);
+            if (posting != null) {
+                posting.remove(carId);
+                if (posting.size == 0) {
+                    fieldPostings.remove(value, posting);
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterator which merges sorted UUID sets of several prefix terms into one sorted sequence
+     */
+    private static final class MergingIterator implements Iterator<UUID> {
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+        private UUID last;
+
+        MergingIterator(final List<Posting> postings, final UUID after) {
+            for (Posting posting : postings) {
+                Iterator<UUID> iterator = tail(posting.ids, after).iterator();
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!heads.isEmpty() && heads.peek().value.equals(last)) {
+                advance(heads.poll());
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public UUID next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head head = heads.poll();
+            last = head.value;
+            advance(head);
+            return last;
+        }
+
+        private void advance(final Head head) {
+            if (head.iterator.hasNext()) {
+                heads.add(new Head(head.iterator.next(), head.iterator));
+            }
+        }
+    }
+
+    /**
+     * Sorted UUIDs of cars with one field value, size is tracked because size of skip list is not constant time
+     */
+    private static final class Posting {
+
+        private final ConcurrentSkipListSet<UUID> ids = new ConcurrentSkipListSet<>();
+        private volatile int size;
+
+        private void add(final UUID carId) {
+            if (ids.add(carId)) {
+                size++;
+            }
+        }
+
+        private void remove(final UUID carId) {
+            if (ids.remove(carId)) {
+                size--;
+            }
+        }
+    }
+
+    private static final class Head implements Comparable<Head> {
+
+        private final UUID value;
+        private final Iterator<UUID> iterator;
+
+        private Head(final UUID value, final Iterator<UUID> iterator) {
+            this.value = value;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public int compareTo(final Head other) {
+            return value.compareTo(other.value);
+        }
+    }
+}
@@ -3,15 +3,27 @@ package carshare.service;
 import carshare.advice.exception.CarNotFoundException;
 import carshare.advice.exception.UserNotFoundException;
 import carshare.database.entity.Car;
+import carshare.database.entity.Image;
 import carshare.database.repository.CarRepository;
 import carshare.advice.exception.CarCreationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for car management
@@ -19,17 +31,42 @@ import java.util.UUID;
 @Service
 public class CarService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CarService.class);
+
     private final CarRepository carRepository;
+    private final KeysetPager keysetPager;
     private final UserService userService;
+    private final UserQueries userQueries;
+    private final BatchWriter batchWriter;
+    private final ImageService imageService;
+    private final CarSearchIndex searchIndex;
+    private final FullTextIndex descriptionIndex;
+    private final UniquenessGuard uniquenessGuard;
+    private final FetchPlans fetchPlans;
+    private final boolean rebuildSearchIndex;
 
     @Autowired
-    public CarService(final CarRepository carRepository, final UserService userService) {
+    public CarService(final CarRepository carRepository, final KeysetPager keysetPager,
+                      final UserService userService, final UserQueries userQueries,
+                      final BatchWriter batchWriter, final ImageService imageService,
+                      final CarSearchIndex searchIndex, final FullTextSearch fullTextSearch,
+                      final UniquenessGuard uniquenessGuard, final FetchPlans fetchPlans,
+                      @Value("${carshare.search.rebuild-on-startup:true}") final boolean rebuildSearchIndex) {
         this.carRepository = carRepository;
+        this.keysetPager = keysetPager;
         this.userService = userService;
+        this.userQueries = userQueries;
+        this.batchWriter = batchWriter;
+        this.imageService = imageService;
+        this.searchIndex = searchIndex;
+        this.descriptionIndex = fullTextSearch.cars();
+        this.uniquenessGuard = uniquenessGuard;
+        this.fetchPlans = fetchPlans;
+        this.rebuildSearchIndex = rebuildSearchIndex;
     }
 
     /**
-     * Method accepts car data and save it to database
+     * Method accepts car data and save it to database, duplicate VIN or number is rejected before insert
      *
      * @param car                               Car data
      * @throws CarCreationException             if car is not created
@@ -40,10 +77,11 @@ public class CarService {
         if (car != null && car.getUser() != null &&
                 userService.isVerified(car.getUser().getId())
         ) {
+            checkUnique(car);
             car.getImages().forEach(carImage ->
                     carImage.setCar(car)
             );
-            return carRepository.save(car);
+            return indexAfterCommit(carRepository.save(car));
         }
         throw new CarCreationException("User not verified or car data is invalid.");
     }
@@ -55,11 +93,35 @@ public class CarService {
      * @return                                  Car with data
      * @throws CarNotFoundException             if car not exist
      */
+    @Transactional(readOnly = true)
     public Car getById(final UUID carId) throws CarNotFoundException {
-        if (!carRepository.existsById(carId)) {
-            throw new CarNotFoundException("Car not exists.");
-        }
-        return carRepository.findById(carId).orElse(new Car());
+        return RepositoryLookups.findOrThrow(carRepository, carId,
+                () -> new CarNotFoundException("Car not exists."));
+    }
+
+    /**
+     * Method accepts UUID of car and return car with associations of fetch plan loaded by one query
+     *
+     * @param carId                             UUID of car data
+     * @param plan                              CAR_CARD or CAR_DETAIL
+     * @return                                  Car with data
+     * @throws CarNotFoundException             if car not exist
+     */
+    @Transactional(readOnly = true)
+    public Car getById(final UUID carId, final FetchPlan plan) throws CarNotFoundException {
+        return fetchPlans.find(Car.class, carId, plan)
+                .orElseThrow(() -> new CarNotFoundException("Car not exists."));
+    }
+
+    /**
+     * Method accepts UUIDs of cars and return all of them with few "in" queries
+     *
+     * @param carIds                            UUIDs of cars
+     * @return                                  Found cars in order of UUIDs and missing UUIDs
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<Car> getByIds(final Collection<UUID> carIds) {
+        return RepositoryLookups.findAllOrdered(carRepository, carIds, Car::getId);
     }
 
     /**
@@ -67,10 +129,132 @@ public class CarService {
      *
      * @return                                  List of all cars
      */
+    @Transactional(readOnly = true)
     public List<Car> getAll() {
         return new ArrayList<>((Collection<? extends Car>) carRepository.findAll());
     }
 
+    /**
+     * Method return list of all cars with associations of fetch plan loaded by one query
+     *
+     * @param plan                              CAR_CARD or CAR_DETAIL
+     * @return                                  List of all cars
+     */
+    @Transactional(readOnly = true)
+    public List<Car> getAll(final FetchPlan plan) {
+        return fetchPlans.findAll(Car.class, plan);
+    }
+
+    /**
+     * Method return one page of cars ordered by UUID, started after given cursor
+     *
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of cars on page
+     * @return                                  Page of cars with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Car> getPage(final UUID after, final int size) {
+        return keysetPager.page(Car.class, after, size, Car::getId);
+    }
+
+    /**
+     * Method return one page of cars with associations of fetch plan, page is read by two queries
+     *
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of cars on page
+     * @param plan                              CAR_CARD or CAR_DETAIL
+     * @return                                  Page of cars with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Car> getPage(final UUID after, final int size, final FetchPlan plan) {
+        return fetchPlans.page(Car.class, after, size, plan, Car::getId);
+    }
+
+    /**
+     * Method return one page of the newest cars, started before given cursor
+     *
+     * @param before                            Cursor from previous page, null for first page
+     * @param size                              Max amount of cars on page
+     * @return                                  Page of cars with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Car> getNewestPage(final UUID before, final int size) {
+        return keysetPager.newestPage(Car.class, before, size, Car::getId);
+    }
+
+    /**
+     * Method accepts search filters and return one page of matching cars ordered by UUID.
+     * Cars are found by in-memory search index and loaded with their images by one "in" query.
+     *
+     * @param filters                           Exact and prefix filters, all of them must match
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of cars on page
+     * @return                                  Page of cars with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Car> search(final Collection<CarSearchFilter> filters, final UUID after, final int size) {
+        KeysetPage<UUID> page = searchIndex.search(filters, after, size);
+        return new KeysetPage<>(fetchPlans.findAll(Car.class, page.getItems(), FetchPlan.CAR_CARD, Car::getId),
+                page.getNextCursor());
+    }
+
+    /**
+     * Method accepts free-text query and return one page of cars which descriptions match it,
+     * the most relevant first
+     *
+     * @param query                             Free-text query, for example "child seat"
+     * @param offset                            Amount of best matches to skip
+     * @param size                              Max amount of cars on page
+     * @return                                  Page of cars with total amount of matches
+     */
+    @Transactional(readOnly = true)
+    public FullTextPage<Car> searchDescriptions(final String query, final int offset, final int size) {
+        FullTextPage<UUID> page = descriptionIndex.search(query, offset, size);
+        return new FullTextPage<>(getByIds(page.getItems()).getFound(), page.getOffset(), page.getTotal());
+    }
+
+    /**
+     * Method fill search index with all cars from database, it runs once application is started.
+     * Full-text index of descriptions is filled in the same pass only if it was not loaded from disk.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildSearchIndex() {
+        boolean rebuildDescriptions = !descriptionIndex.isPersisted();
+        if (!rebuildSearchIndex && !rebuildDescriptions) {
+            return;
+        }
+        if (rebuildDescriptions) {
+            descriptionIndex.clear();
+        }
+        long start = System.nanoTime();
+        try (Stream<Car> cars = stream(KeysetPager.MAX_PAGE_SIZE)) {
+            int indexed = searchIndex.rebuild(cars.peek(car -> {
+                if (rebuildDescriptions) {
+                    descriptionIndex.put(car.getId(), car.getDescription());
+                }
+            }));
+            if (rebuildDescriptions) {
+                descriptionIndex.markComplete();
+            }
+            LOGGER.info("Search index is built for {} cars in {} ms", indexed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Search index is not built", e);
+        }
+    }
+
+    /**
+     * Method return lazy stream of all cars, which is read from database by chunks,
+     * so memory used by one call does not depend on amount of cars
+     *
+     * @param chunkSize                         Amount of cars read by one query
+     * @return                                  Stream of all cars
+     */
+    public Stream<Car> stream(final int chunkSize) {
+        return keysetPager.stream(Car.class, chunkSize, Car::getId);
+    }
+
     /**
      * Method accepts car data change fields and rewrite it to database
      *
@@ -79,10 +263,8 @@ public class CarService {
      */
     @Transactional
     public Car update(final Car car) throws CarNotFoundException {
-        if (!carRepository.existsById(car.getId())) {
-            throw new CarNotFoundException("Car not exists.");
-        }
-        return carRepository.save(car);
+        return indexAfterCommit(RepositoryLookups.updateOrThrow(carRepository, car.getId(), car,
+                () -> new CarNotFoundException("Car not exists.")));
     }
 
     /**
@@ -93,10 +275,110 @@ public class CarService {
      */
     @Transactional
     public UUID delete(final UUID carId) throws CarNotFoundException {
-        if (!carRepository.existsById(carId)) {
-            throw new CarNotFoundException("Car not exists.");
-        }
-        carRepository.deleteById(carId);
+        return deleteCar(carId);
+    }
+
+    /**
+     * Method accepts list of cars and save them to database in chunked batches.
+     * Owners of all cars are verified by one query, invalid car does not stop other cars.
+     *
+     * @param cars                              List of car data
+     * @return                                  Result for every car in order of list
+     */
+    public List<BatchItemResult<Car>> createAll(final List<Car> cars) {
+        Map<UUID, Boolean> verifiedOwners = userQueries.findVerified(cars.stream()
+                .filter(car -> car != null && car.getUser() != null)
+                .map(car -> car.getUser().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+        return batchWriter.write(cars, car -> {
+            if (car == null || car.getUser() == null
+                    || !verifiedOwners.getOrDefault(car.getUser().getId(), false)) {
+                throw new CarCreationException("User not verified or car data is invalid.");
+            }
+            checkUnique(car);
+            if (car.getImages() != null) {
+                car.getImages().forEach(carImage ->
+                        carImage.setCar(car)
+                );
+            }
+            return indexAfterCommit(carRepository.save(car));
+        });
+    }
+
+    /**
+     * Method accepts list of cars and rewrite them to database in chunked batches.
+     * Existing cars of every chunk are loaded by one query.
+     *
+     * @param cars                              List of car data
+     * @return                                  Result for every car in order of list
+     */
+    public List<BatchItemResult<Car>> updateAll(final List<Car> cars) {
+        return batchWriter.write(cars,
+                chunk -> carRepository.findAllById(chunk.stream()
+                        .filter(car -> car != null && car.getId() != null)
+                        .map(Car::getId)
+                        .collect(Collectors.toList())),
+                car -> {
+                    if (car == null || car.getId() == null) {
+                        throw new CarNotFoundException("Car not exists.");
+                    }
+                    return indexAfterCommit(RepositoryLookups.updateOrThrow(carRepository, car.getId(), car,
+                            () -> new CarNotFoundException("Car not exists.")));
+                });
+    }
+
+    /**
+     * Method accepts list of car UUIDs and delete them from database in chunked batches.
+     * Cars of every chunk are loaded by one query.
+     *
+     * @param carIds                            List of car UUIDs
+     * @return                                  Result for every UUID in order of list
+     */
+    public List<BatchItemResult<UUID>> deleteAll(final List<UUID> carIds) {
+        return batchWriter.write(carIds,
+                chunk -> carRepository.findAllById(chunk.stream()
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList())),
+                carId -> {
+                    if (carId == null) {
+                        throw new CarNotFoundException("Car not exists.");
+                    }
+                    return deleteCar(carId);
+                });
+    }
+
+    private UUID deleteCar(final UUID carId) throws CarNotFoundException {
+        Car car = RepositoryLookups.findOrThrow(carRepository, carId,
+                () -> new CarNotFoundException("Car not exists."));
+        List<String> imageUrls = car.getImages() == null
+                ? Collections.emptyList()
+                : car.getImages().stream().map(Image::getUrl).collect(Collectors.toList());
+        carRepository.delete(car);
+        imageService.releaseContentAfterCommit(imageUrls);
+        TransactionHooks.afterCommit(() -> {
+            searchIndex.remove(carId);
+            descriptionIndex.remove(carId);
+        });
         return carId;
     }
+
+    private void checkUnique(final Car car) throws CarCreationException {
+        if (uniquenessGuard.isTaken(UniqueField.CAR_VIN, car.getVin())) {
+            throw new CarCreationException("Car with this VIN already exists.");
+        }
+        if (uniquenessGuard.isTaken(UniqueField.CAR_NUMBER, car.getNumber())) {
+            throw new CarCreationException("Car with this number already exists.");
+        }
+    }
+
+    private Car indexAfterCommit(final Car car) {
+        uniquenessGuard.register(UniqueField.CAR_VIN, car.getVin());
+        uniquenessGuard.register(UniqueField.CAR_NUMBER, car.getNumber());
+        TransactionHooks.afterCommit(() -> {
+            searchIndex.index(car);
+            descriptionIndex.put(car.getId(), car.getDescription());
+        });
+        return car;
+    }
 }
\ No newline at end of file
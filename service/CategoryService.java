@@ -2,13 +2,18 @@ package carshare.service;
 
 import carshare.database.entity.Category;
 import carshare.database.repository.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Service for category management
@@ -16,11 +21,18 @@ import java.util.UUID;
 @Service
 public class CategoryService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryService.class);
+
     private final CategoryRepository categoryRepository;
+    private final KeysetPager keysetPager;
+    private final FullTextIndex descriptionIndex;
 
     @Autowired
-    public CategoryService(final CategoryRepository categoryRepository) {
+    public CategoryService(final CategoryRepository categoryRepository, final KeysetPager keysetPager,
+                           final FullTextSearch fullTextSearch) {
         this.categoryRepository = categoryRepository;
+        this.keysetPager = keysetPager;
+        this.descriptionIndex = fullTextSearch.categories();
     }
 
     /**
@@ -33,7 +45,7 @@ public class CategoryService {
         if (category == null) {
             return null;
         }
-        return categoryRepository.save(category);
+        return indexAfterCommit(categoryRepository.save(category));
     }
 
     /**
@@ -42,11 +54,20 @@ public class CategoryService {
      * @param categoryId                    UUID of category data
      * @return                              Category data
      */
+    @Transactional(readOnly = true)
     public Category getById(final UUID categoryId) {
-        if (!categoryRepository.existsById(categoryId)){
-            return null;
-        }
-        return categoryRepository.findById(categoryId).orElse(new Category());
+        return RepositoryLookups.findOrNull(categoryRepository, categoryId);
+    }
+
+    /**
+     * Method accepts UUIDs of categories and return all of them with few "in" queries
+     *
+     * @param categoryIds                   UUIDs of categories
+     * @return                              Found categories in order of UUIDs and missing UUIDs
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<Category> getByIds(final Collection<UUID> categoryIds) {
+        return RepositoryLookups.findAllOrdered(categoryRepository, categoryIds, Category::getId);
     }
 
     /**
@@ -54,10 +75,68 @@ public class CategoryService {
      *
      * @return                              List of all categories
      */
+    @Transactional(readOnly = true)
     public List<Category> getAll(){
         return new ArrayList<>((Collection<? extends Category>) categoryRepository.findAll());
     }
 
+    /**
+     * Method accepts free-text query and return one page of categories which descriptions match it,
+     * the most relevant first
+     *
+     * @param query                         Free-text query, for example "electric"
+     * @param offset                        Amount of best matches to skip
+     * @param size                          Max amount of categories on page
+     * @return                              Page of categories with total amount of matches
+     */
+    @Transactional(readOnly = true)
+    public FullTextPage<Category> searchDescriptions(final String query, final int offset, final int size) {
+        FullTextPage<UUID> page = descriptionIndex.search(query, offset, size);
+        return new FullTextPage<>(getByIds(page.getItems()).getFound(), page.getOffset(), page.getTotal());
+    }
+
+    /**
+     * Method fill full-text index with descriptions of all categories if it was not loaded from disk,
+     * it runs once application is started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildDescriptionIndex() {
+        if (descriptionIndex.isPersisted()) {
+            return;
+        }
+        descriptionIndex.clear();
+        try (Stream<Category> categories = stream(KeysetPager.MAX_PAGE_SIZE)) {
+            categories.forEach(category -> descriptionIndex.put(category.getId(), category.getDescription()));
+            descriptionIndex.markComplete();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Full-text index of categories is not built", e);
+        }
+    }
+
+    /**
+     * Method return one page of categories ordered by UUID, started after given cursor
+     *
+     * @param after                         Cursor from previous page, null for first page
+     * @param size                          Max amount of categories on page
+     * @return                              Page of categories with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Category> getPage(final UUID after, final int size) {
+        return keysetPager.page(Category.class, after, size, Category::getId);
+    }
+
+    /**
+     * Method return lazy stream of all categories, which is read from database by chunks,
+     * so memory used by one call does not depend on amount of categories
+     *
+     * @param chunkSize                     Amount of categories read by one query
+     * @return                              Stream of all categories
+     */
+    public Stream<Category> stream(final int chunkSize) {
+        return keysetPager.stream(Category.class, chunkSize, Category::getId);
+    }
+
     /**
      * Method accepts category data change fields and rewrite it to database
      *
@@ -65,10 +144,8 @@ public class CategoryService {
      */
     @Transactional
     public Category update(final Category category) {
-        if (!categoryRepository.existsById(category.getId())){
-            return null;
-        }
-        return categoryRepository.save(category);
+        Category updatedCategory = RepositoryLookups.updateOrNull(categoryRepository, category.getId(), category);
+        return updatedCategory == null ? null : indexAfterCommit(updatedCategory);
     }
 
     /**
@@ -78,10 +155,15 @@ public class CategoryService {
      */
     @Transactional
     public UUID delete(final UUID categoryId) {
-        if (!categoryRepository.existsById(categoryId)){
-            return null;
+        UUID deletedId = RepositoryLookups.deleteOrNull(categoryRepository, categoryId);
+        if (deletedId != null) {
+            TransactionHooks.afterCommit(() -> descriptionIndex.remove(deletedId));
         }
-        categoryRepository.deleteById(categoryId);
-        return categoryId;
+        return deletedId;
+    }
+
+    private Category indexAfterCommit(final Category category) {
+        TransactionHooks.afterCommit(() -> descriptionIndex.put(category.getId(), category.getDescription()));
+        return category;
     }
 }
@@ -0,0 +1,119 @@
+package carshare.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Incremental CSV reader which returns one record at a time as map of column name to value.
+ * First row is header, quoted values may contain separators, quotes ("") and line breaks.
+ * Column names with dots are turned into nested maps.
+ */
+class CsvRecordReader implements Iterator<Map<String, Object>> {
+
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private final BufferedReader reader;
+    private final List<String> header;
+    private List<String> nextRow;
+
+    CsvRecordReader(final BufferedReader reader) {
+        this.reader = reader;
+        List<String> headerRow = readRow();
+        this.header = headerRow == null ? Collections.emptyList() : headerRow;
+        this.nextRow = headerRow == null ? null : readRow();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        Map<String, Object> record = toRecord(nextRow);
+        nextRow = readRow();
+        return record;
+    }
+
+    private Map<String, Object> toRecord(final List<String> row) {
+        Map<String, Object> record = new HashMap<>();
+        for (int i = 0; i < header.size() && i < row.size(); i++) {
+            String value = row.get(i);
+            if (value.isEmpty()) {
+                continue;
+            }
+            put(record, header.get(i).trim().split("\\."), value);
+        }
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(final Map<String, Object> record, final String[] path, final String value) {
+        Map<String, Object> node = record;
+        for (int i = 0; i < path.length - 1; i++) {
+            node = (Map<String, Object>) node.computeIfAbsent(path[i], key -> new HashMap<String, Object>());
+        }
+        node.put(path[path.length - 1], value);
+    }
+
+    private List<String> readRow() {
+        try {
+            String line = reader.readLine();
+            while (line != null && line.isEmpty()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                for (int i = 0; i < line.length(); i++) {
+                    char symbol = line.charAt(i);
+                    if (quoted) {
+                        if (symbol == QUOTE && i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                            value.append(QUOTE);
+                            i++;
+                        } else if (symbol == QUOTE) {
+                            quoted = false;
+                        } else {
+                            value.append(symbol);
+                        }
+                    } else if (symbol == QUOTE) {
+                        quoted = true;
+                    } else if (symbol == SEPARATOR) {
+                        values.add(value.toString());
+                        value.setLength(0);
+                    } else {
+                        value.append(symbol);
+                    }
+                }
+                if (!quoted) {
+                    break;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Unclosed quoted value in CSV.");
+                }
+                value.append('\n');
+            }
+            values.add(value.toString());
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
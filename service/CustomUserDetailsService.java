@@ -1,12 +1,16 @@
 package carshare.service;
 
 import carshare.controller.dto.UserDetailsDTO;
-import carshare.database.repository.UserRepository;
+import carshare.database.entity.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
 
 /**
  * Service for loading users from database
@@ -14,15 +18,28 @@ import org.springframework.stereotype.Service;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final UserRepository userRepository;
+    private final FetchPlans fetchPlans;
+    private final BoundedTtlCache<String, UserDetails> userDetailsCache;
+    private final TransactionTemplate readOnlyTransaction;
 
     @Autowired
-    public CustomUserDetailsService(final UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public CustomUserDetailsService(
+            final FetchPlans fetchPlans,
+            final PlatformTransactionManager transactionManager,
+            @Value("${carshare.cache.user-details.size:10000}") final int userDetailsCacheSize,
+            @Value("${carshare.cache.user-details.ttl:5m}") final Duration userDetailsCacheTtl
+    ) {
+        this.fetchPlans = fetchPlans;
+        this.userDetailsCache = new BoundedTtlCache<>(userDetailsCacheSize, userDetailsCacheTtl);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
-     * Method return userdata by login
+     * Method return userdata by login.
+     * User is loaded with roles by one query, user details are cached by login,
+     * cache entry is evicted when user is updated or deleted.
+     * Read-only transaction is opened only on cache miss, so cache hit does not take connection.
      *
      * @param login                             Login from authentication request
      * @return                                  User data
@@ -30,8 +47,34 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(final String login) throws UsernameNotFoundException {
-        return UserDetailsDTO.build(userRepository
-                .getByLogin(login)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + login)));
+        UserDetails userDetails = userDetailsCache.get(login);
+        if (userDetails == null) {
+            long generation = userDetailsCache.generation();
+            userDetails = readOnlyTransaction.execute(status -> UserDetailsDTO.build(fetchPlans
+                    .findBy(User.class, "login", login, FetchPlan.AUTH_PRINCIPAL)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + login))));
+            userDetailsCache.putIfNotInvalidated(login, userDetails, generation);
+        }
+        return userDetails;
+    }
+
+    /**
+     * Method remove cached user details by login
+     *
+     * @param login                             Login of changed user
+     */
+    public void evict(final String login) {
+        if (login != null) {
+            userDetailsCache.invalidate(login);
+        }
+    }
+
+    /**
+     * Method return statistics of user details cache
+     *
+     * @return                                  Hits, misses, evictions and size of cache
+     */
+    public CacheStats getCacheStats() {
+        return userDetailsCache.stats();
     }
 }
@@ -0,0 +1,195 @@
+package carshare.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service for on-demand profiling of live instance, available only to users with ADMIN role.
+ * Java Flight Recorder recordings and class histograms are written to local files and are streamed to caller
+ * from those files, a file is deleted once stream is closed.
+ * Only one recording runs at a time, new recordings and class histograms are rate-limited.
+ */
+@Service
+public class DiagnosticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiagnosticsService.class);
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+    private final RoleService roleService;
+    private final Path dir;
+    private final Duration maxDuration;
+    private final long minIntervalNanos;
+    private final AtomicLong nextRecordingNanos = new AtomicLong(System.nanoTime());
+    private final AtomicLong nextHistogramNanos = new AtomicLong(System.nanoTime());
+    private Recording recording;
+
+    @Autowired
+    public DiagnosticsService(
+            final RoleService roleService,
+            @Value("${carshare.diagnostics.dir:${java.io.tmpdir}/carshare-diagnostics}") final String dir,
+            @Value("${carshare.diagnostics.max-duration:10m}") final Duration maxDuration,
+            @Value("${carshare.diagnostics.min-interval:5m}") final Duration minInterval
+    ) {
+        this.roleService = roleService;
+        this.dir = Paths.get(dir).toAbsolutePath();
+        this.maxDuration = maxDuration;
+        this.minIntervalNanos = minInterval.toNanos();
+    }
+
+    /**
+     * Method start flight recording which stops by itself after duration
+     *
+     * @param profile                           Name of JFR configuration, "default" or "profile"
+     * @param duration                          Duration of recording, limited by max duration
+     * @return                                  Id of recording
+     * @throws AccessDeniedException            if current user is not admin
+     * @throws IllegalStateException            if recording is already running or rate limit is reached
+     * @throws IllegalArgumentException         if profile is unknown
+     */
+    public synchronized long startRecording(final String profile, final Duration duration) {
+        checkAdmin();
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Flight recording " + recording.getId() + " is already running.");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown recording profile: " + profile, e);
+        }
+        acquire(nextRecordingNanos);
+        discard(recording);
+        try {
+            Files.createDirectories(dir);
+            Recording started = new Recording(configuration);
+            started.setName("carshare-" + profile);
+            started.setToDisk(true);
+            started.setDuration(duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration);
+            started.setDestination(dir.resolve("carshare-" + System.currentTimeMillis() + ".jfr"));
+            started.start();
+            recording = started;
+        } catch (IOException e) {
+            throw new IllegalStateException("Flight recording is not started.", e);
+        }
+        LOGGER.info("Flight recording {} is started with profile {}", recording.getId(), profile);
+        return recording.getId();
+    }
+
+    /**
+     * Method stop recording if it is still running and return its file as stream.
+     * File is deleted when stream is closed, so recording can be downloaded once.
+     *
+     * @param recordingId                       Id of recording
+     * @return                                  Stream of .jfr file
+     * @throws AccessDeniedException            if current user is not admin
+     * @throws IllegalArgumentException         if there is no such recording
+     */
+    public synchronized InputStream stopRecording(final long recordingId) throws IOException {
+        checkAdmin();
+        if (recording == null || recording.getId() != recordingId) {
+            throw new IllegalArgumentException("Flight recording " + recordingId + " not exists.");
+        }
+        Recording stopped = recording;
+        recording = null;
+        if (stopped.getState() == RecordingState.RUNNING) {
+            stopped.stop();
+        }
+        Path file = stopped.getDestination();
+        stopped.close();
+        return Files.newInputStream(file, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Method capture histogram of heap objects by class and return its file as stream.
+     * Histogram of live objects runs full stop-the-world GC first, the pause grows with heap size,
+     * histogram of all objects only walks heap and also counts unreachable objects.
+     * JVM diagnostic command returns histogram text as one string, a few hundred kilobytes,
+     * it is written to local file at once, so the string is not held while caller downloads the file.
+     * File is deleted when stream is closed.
+     *
+     * @param live                              True to count only live objects at the cost of full GC
+     * @return                                  Stream of histogram text
+     * @throws AccessDeniedException            if current user is not admin
+     * @throws IllegalStateException            if rate limit is reached
+     */
+    public InputStream classHistogram(final boolean live) throws IOException {
+        checkAdmin();
+        acquire(nextHistogramNanos);
+        Object histogram;
+        try {
+            histogram = ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName(DIAGNOSTIC_COMMAND), "gcClassHistogram",
+                    new Object[]{live ? new String[0] : new String[]{"-all"}},
+                    new String[]{String[].class.getName()});
+        } catch (JMException e) {
+            throw new IllegalStateException("Class histogram is not captured.", e);
+        }
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, "histogram-", ".txt");
+        try {
+            Files.write(file, String.valueOf(histogram).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return Files.newInputStream(file, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        discard(recording);
+        recording = null;
+    }
+
+    private void checkAdmin() {
+        if (!roleService.hasRole(SecurityContextHolder.getContext().getAuthentication(), RoleService.ADMIN)) {
+            throw new AccessDeniedException("Diagnostics are available only to administrators.");
+        }
+    }
+
+    private void acquire(final AtomicLong nextAllowedNanos) {
+        long now = System.nanoTime();
+        long next = nextAllowedNanos.get();
+        if (now - next < 0 || !nextAllowedNanos.compareAndSet(next, now + minIntervalNanos)) {
+            throw new IllegalStateException("Diagnostic captures are rate limited, try again in "
+                    + Math.max(1, Duration.ofNanos(nextAllowedNanos.get() - now).getSeconds()) + " seconds.");
+        }
+    }
+
+    private static void discard(final Recording previous) {
+        if (previous == null) {
+            return;
+        }
+        Path file = previous.getDestination();
+        previous.close();
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Flight recording file {} is not deleted", file, e);
+        }
+    }
+}
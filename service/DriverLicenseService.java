@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Service for driver license management
@@ -17,10 +18,13 @@ import java.util.UUID;
 public class DriverLicenseService {
 
     private final DriverLicenseRepository driverLicenseRepository;
+    private final KeysetPager keysetPager;
 
     @Autowired
-    public DriverLicenseService(final DriverLicenseRepository driverLicenseRepository) {
+    public DriverLicenseService(final DriverLicenseRepository driverLicenseRepository,
+                                final KeysetPager keysetPager) {
         this.driverLicenseRepository = driverLicenseRepository;
+        this.keysetPager = keysetPager;
     }
 
     /**
@@ -42,11 +46,20 @@ public class DriverLicenseService {
      * @param driverLicenseId                       UUID of driver license data
      * @return                                      Driver license data
      */
+    @Transactional(readOnly = true)
     public DriverLicense getById(final UUID driverLicenseId) {
-        if (!driverLicenseRepository.existsById(driverLicenseId)){
-            return null;
-        }
-        return driverLicenseRepository.findById(driverLicenseId).orElse(new DriverLicense());
+        return RepositoryLookups.findOrNull(driverLicenseRepository, driverLicenseId);
+    }
+
+    /**
+     * Method accepts UUIDs of driver licenses and return all of them with few "in" queries
+     *
+     * @param driverLicenseIds                      UUIDs of driver licenses
+     * @return                                      Found driver licenses in order of UUIDs and missing UUIDs
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<DriverLicense> getByIds(final Collection<UUID> driverLicenseIds) {
+        return RepositoryLookups.findAllOrdered(driverLicenseRepository, driverLicenseIds, DriverLicense::getId);
     }
 
     /**
@@ -54,10 +67,34 @@ public class DriverLicenseService {
      *
      * @return                                      List of all driver licenses
      */
+    @Transactional(readOnly = true)
     public List<DriverLicense> getAll(){
         return new ArrayList<>((Collection<? extends DriverLicense>) driverLicenseRepository.findAll());
     }
 
+    /**
+     * Method return one page of driver licenses ordered by UUID, started after given cursor
+     *
+     * @param after                                 Cursor from previous page, null for first page
+     * @param size                                  Max amount of driver licenses on page
+     * @return                                      Page of driver licenses with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<DriverLicense> getPage(final UUID after, final int size) {
+        return keysetPager.page(DriverLicense.class, after, size, DriverLicense::getId);
+    }
+
+    /**
+     * Method return lazy stream of all driver licenses, which is read from database by chunks,
+     * so memory used by one call does not depend on amount of driver licenses
+     *
+     * @param chunkSize                             Amount of driver licenses read by one query
+     * @return                                      Stream of all driver licenses
+     */
+    public Stream<DriverLicense> stream(final int chunkSize) {
+        return keysetPager.stream(DriverLicense.class, chunkSize, DriverLicense::getId);
+    }
+
     /**
      * Method accepts driver license data change fields and rewrite it to database
      *
@@ -65,10 +102,7 @@ public class DriverLicenseService {
      */
     @Transactional
     public DriverLicense update(final DriverLicense driverLicense) {
-        if (!driverLicenseRepository.existsById(driverLicense.getId())){
-            return null;
-        }
-        return driverLicenseRepository.save(driverLicense);
+        return RepositoryLookups.updateOrNull(driverLicenseRepository, driverLicense.getId(), driverLicense);
     }
 
     /**
@@ -78,10 +112,6 @@ public class DriverLicenseService {
      */
     @Transactional
     public UUID delete(final UUID driverLicenseId) {
-        if (!driverLicenseRepository.existsById(driverLicenseId)){
-            return null;
-        }
-        driverLicenseRepository.deleteById(driverLicenseId);
-        return driverLicenseId;
+        return RepositoryLookups.deleteOrNull(driverLicenseRepository, driverLicenseId);
     }
 }
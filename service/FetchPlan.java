@@ -0,0 +1,52 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import carshare.database.entity.User;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Named set of associations which are loaded together with entity for one use case.
+ * Plan is applied as JPA fetch graph, so listed associations are joined into the same query
+ * and not listed ones stay lazy.
+ */
+public enum FetchPlan {
+    /**
+     * Car in list of cars: car with its images for thumbnail
+     */
+    CAR_CARD(Car.class, "images"),
+    /**
+     * Car page: car with images and owner
+     */
+    CAR_DETAIL(Car.class, "images", "user"),
+    /**
+     * User profile: user with roles and cars
+     */
+    USER_PROFILE(User.class, "roles", "cars"),
+    /**
+     * Authenticated user: user with roles only
+     */
+    AUTH_PRINCIPAL(User.class, "roles");
+
+    private final Class<?> entityType;
+    private final List<String> attributePaths;
+
+    FetchPlan(final Class<?> entityType, final String... attributePaths) {
+        this.entityType = entityType;
+        this.attributePaths = Collections.unmodifiableList(Arrays.asList(attributePaths));
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Method return associations of plan, nested association is written with dot, for example "cars.images"
+     *
+     * @return                                  Attribute paths
+     */
+    public List<String> getAttributePaths() {
+        return attributePaths;
+    }
+}
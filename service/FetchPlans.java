@@ -0,0 +1,173 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Loading of entities with fetch plans.
+ * Every read is one query with joins of plan associations, many entities are read by chunked "in" queries.
+ * Pages are read in two steps: ids of page by keyset query, then entities of page by ids,
+ * because row limit over joined collections would be applied in memory.
+ */
+@Component
+public class FetchPlans {
+
+    static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+    private static final String ID = "id";
+
+    private final EntityManager entityManager;
+    private final KeysetPager keysetPager;
+
+    @Autowired
+    public FetchPlans(final EntityManager entityManager, final KeysetPager keysetPager) {
+        this.entityManager = entityManager;
+        this.keysetPager = keysetPager;
+    }
+
+    /**
+     * Method load entity by UUID with associations of plan
+     *
+     * @param type                              Entity class
+     * @param id                                UUID of entity
+     * @param plan                              Fetch plan for entity class
+     * @return                                  Found entity or empty
+     */
+    public <T> Optional<T> find(final Class<T> type, final UUID id, final FetchPlan plan) {
+        return Optional.ofNullable(entityManager.find(type, id,
+                Collections.singletonMap(FETCH_GRAPH, graph(type, plan))));
+    }
+
+    /**
+     * Method load entity by value of unique attribute with associations of plan
+     *
+     * @param type                              Entity class
+     * @param attribute                         Name of unique attribute
+     * @param value                             Value of attribute
+     * @param plan                              Fetch plan for entity class
+     * @return                                  Found entity or empty
+     */
+    public <T> Optional<T> findBy(final Class<T> type, final String attribute, final Object value,
+                                  final FetchPlan plan) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(type);
+        Root<T> root = query.from(type);
+        query.select(root).distinct(true).where(builder.equal(root.get(attribute), value));
+        List<T> result = entityManager.createQuery(query)
+                .setHint(FETCH_GRAPH, graph(type, plan))
+                .getResultList();
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * Method load many entities by UUIDs with associations of plan
+     *
+     * @param type                              Entity class
+     * @param ids                               UUIDs of entities
+     * @param plan                              Fetch plan for entity class
+     * @param idOf                              Function which return id of entity
+     * @return                                  Found entities in order of UUIDs
+     */
+    public <T> List<T> findAll(final Class<T> type, final Collection<UUID> ids, final FetchPlan plan,
+                               final Function<T, UUID> idOf) {
+        List<UUID> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        uniqueIds.remove(null);
+        EntityGraph<T> graph = graph(type, plan);
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        Map<UUID, T> loaded = new HashMap<>();
+        for (int from = 0; from < uniqueIds.size(); from += RepositoryLookups.IN_CHUNK_SIZE) {
+            List<UUID> chunk = uniqueIds.subList(from, Math.min(uniqueIds.size(), from + RepositoryLookups.IN_CHUNK_SIZE));
+            CriteriaQuery<T> query = builder.createQuery(type);
+            Root<T> root = query.from(type);
+            query.select(root).distinct(true).where(root.get(ID).in(chunk));
+            entityManager.createQuery(query)
+                    .setHint(FETCH_GRAPH, graph)
+                    .getResultList()
+                    .forEach(entity -> loaded.put(idOf.apply(entity), entity));
+        }
+        List<T> found = new ArrayList<>(loaded.size());
+        for (UUID id : uniqueIds) {
+            T entity = loaded.get(id);
+            if (entity != null) {
+                found.add(entity);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Method load all entities with associations of plan by one query
+     *
+     * @param type                              Entity class
+     * @param plan                              Fetch plan for entity class
+     * @return                                  List of all entities
+     */
+    public <T> List<T> findAll(final Class<T> type, final FetchPlan plan) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(type);
+        query.select(query.from(type)).distinct(true);
+        return entityManager.createQuery(query)
+                .setHint(FETCH_GRAPH, graph(type, plan))
+                .getResultList();
+    }
+
+    /**
+     * Method return one page of entities ordered by UUID with associations of plan.
+     * Page is read by two queries regardless of page size.
+     *
+     * @param type                              Entity class
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of entities on page
+     * @param plan                              Fetch plan for entity class
+     * @param idOf                              Function which return id of entity
+     * @return                                  Page of entities with cursor for the next page
+     */
+    public <T> KeysetPage<T> page(final Class<T> type, final UUID after, final int size, final FetchPlan plan,
+                                  final Function<T, UUID> idOf) {
+        KeysetPage<UUID> ids = keysetPager.idPage(type, after, size);
+        return new KeysetPage<>(findAll(type, ids.getItems(), plan, idOf), ids.getNextCursor());
+    }
+
+    /**
+     * Method build entity graph of plan
+     *
+     * @param type                              Entity class
+     * @param plan                              Fetch plan for entity class
+     * @return                                  Entity graph
+     * @throws IllegalArgumentException         if plan is made for another entity class
+     */
+    <T> EntityGraph<T> graph(final Class<T> type, final FetchPlan plan) {
+        if (plan.getEntityType() != type) {
+            throw new IllegalArgumentException("Fetch plan " + plan + " is not for " + type.getSimpleName());
+        }
+        EntityGraph<T> graph = entityManager.createEntityGraph(type);
+        for (String path : plan.getAttributePaths()) {
+            String[] attributes = path.split("\\.");
+            if (attributes.length == 1) {
+                graph.addAttributeNodes(attributes[0]);
+                continue;
+            }
+            Subgraph<Object> subgraph = graph.addSubgraph(attributes[0]);
+            for (int i = 1; i < attributes.length - 1; i++) {
+                subgraph = subgraph.addSubgraph(attributes[i]);
+            }
+            subgraph.addAttributeNodes(attributes[attributes.length - 1]);
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,347 @@
+package carshare.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded full-text index of documents identified by UUID, ranked with BM25.
+ * Changes are applied in memory only, so rebuild and index hooks of writes never wait for disk.
+ * Index is persisted in its directory as snapshot written on close, so restart after clean shutdown
+ * loads index from disk instead of rebuilding it from database.
+ * Completion marker is removed on open and written on close only if index is complete, so index left by
+ * interrupted rebuild, or by crash which could lose changes committed to database, is rebuilt again.
+ * Snapshot is written from copy of documents, searches and changes do not wait for it.
+ */
+public class FullTextIndex implements Closeable {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int VERSION = 2;
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String COMPLETE = "complete";
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with"));
+
+    private final Path dir;
+    private final Map<String, Map<UUID, Integer>> postings = new HashMap<>();
+    private final Map<UUID, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<UUID, Integer> lengths = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+    private boolean persisted;
+    private boolean complete;
+
+    public FullTextIndex(final Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Method load index from snapshot of completed index and remove completion marker until close
+     *
+     * @throws IOException                      if index files can not be read or written
+     */
+    public void open() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(dir);
+            Path snapshot = dir.resolve(SNAPSHOT);
+            persisted = Files.exists(dir.resolve(COMPLETE)) && Files.exists(snapshot);
+            if (persisted) {
+                readSnapshot(snapshot);
+            }
+            Files.deleteIfExists(dir.resolve(COMPLETE));
+            complete = persisted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method check if index was loaded from disk, otherwise it should be rebuilt from database
+     *
+     * @return                                  True if index of completed rebuild existed on open
+     */
+    public boolean isPersisted() {
+        return persisted;
+    }
+
+    /**
+     * Method accepts document text and add it to index or replace indexed text of the same document
+     *
+     * @param id                                UUID of document
+     * @param text                              Text of document, empty text removes document
+     */
+    public void put(final UUID id, final String text) {
+        if (id == null) {
+            return;
+        }
+        Map<String, Integer> terms = termFrequencies(text);
+        if (terms.isEmpty()) {
+            remove(id);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyPut(id, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method accepts UUID of document and remove it from index
+     *
+     * @param id                                UUID of document
+     */
+    public void remove(final UUID id) {
+        lock.writeLock().lock();
+        try {
+            applyRemove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method drop all documents, index is not complete until markComplete
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+            complete = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method mark rebuilt index complete, so snapshot written on close is loaded on next open
+     */
+    public void markComplete() {
+        lock.writeLock().lock();
+        try {
+            complete = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method accepts free-text query and return documents which contain any of its terms,
+     * ordered by BM25 relevance
+     *
+     * @param query                             Free-text query
+     * @param offset                            Amount of best documents to skip
+     * @param size                              Max amount of documents on page
+     * @return                                  Page of document UUIDs with total amount of matches
+     */
+    public FullTextPage<UUID> search(final String query, final int offset, final int size) {
+        int pageSize = Math.max(1, Math.min(size, KeysetPager.MAX_PAGE_SIZE));
+        int skip = Math.max(0, offset);
+        Set<String> terms = termFrequencies(query).keySet();
+        Map<UUID, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return new FullTextPage<>(Collections.emptyList(), skip, 0);
+            }
+            double averageLength = (double) totalLength / documents.size();
+            for (String term : terms) {
+                Map<UUID, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                double df = termPostings.size();
+                double idf = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+                for (Map.Entry<UUID, Integer> posting : termPostings.entrySet()) {
+                    double tf = posting.getValue();
+                    double norm = K1 * (1 - B + B * lengths.get(posting.getKey()) / averageLength);
+                    scores.merge(posting.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new FullTextPage<>(top(scores, skip, pageSize), skip, scores.size());
+    }
+
+    /**
+     * Method return amount of indexed documents
+     *
+     * @return                                  Amount of documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method write snapshot of whole index and completion marker if index is complete.
+     * Documents are copied under lock and written without it, term maps of documents are never changed.
+     *
+     * @throws IOException                      if snapshot can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        Map<UUID, Map<String, Integer>> copy;
+        boolean completed;
+        lock.readLock().lock();
+        try {
+            copy = new HashMap<>(documents);
+            completed = complete;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!completed) {
+            return;
+        }
+        Path temporary = dir.resolve(SNAPSHOT + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(VERSION);
+            output.writeInt(copy.size());
+            for (Map.Entry<UUID, Map<String, Integer>> document : copy.entrySet()) {
+                writeDocument(output, document.getKey(), document.getValue());
+            }
+        }
+        Files.move(temporary, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.write(dir.resolve(COMPLETE), new byte[0]);
+    }
+
+    /**
+     * Method split text into lower-case terms without stop words and count them.
+     * Simple plural "s" ending is removed, so "seats" matches "seat".
+     *
+     * @param text                              Text
+     * @return                                  Frequency of every term
+     */
+    static Map<String, Integer> termFrequencies(final String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            String term = token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")
+                    ? token.substring(0, token.length() - 1)
+                    : token;
+            terms.merge(term, 1, Integer::sum);
+        }
+        return terms;
+    }
+
+    private static List<UUID> top(final Map<UUID, Double> scores, final int offset, final int size) {
+        Comparator<Map.Entry<UUID, Double>> byRelevance = Map.Entry.<UUID, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        int limit = offset + size;
+        PriorityQueue<Map.Entry<UUID, Double>> best = new PriorityQueue<>(byRelevance.reversed());
+        for (Map.Entry<UUID, Double> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Map.Entry<UUID, Double>> ranked = new ArrayList<>(best);
+        ranked.sort(byRelevance);
+        List<UUID> ids = new ArrayList<>(size);
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    private void applyPut(final UUID id, final Map<String, Integer> terms) {
+        applyRemove(id);
+        documents.put(id, terms);
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(id, term.getValue());
+            length += term.getValue();
+        }
+        lengths.put(id, length);
+        totalLength += length;
+    }
+
+    private boolean applyRemove(final UUID id) {
+        Map<String, Integer> previous = documents.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        for (String term : previous.keySet()) {
+            Map<UUID, Integer> termPostings = postings.get(term);
+            termPostings.remove(id);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengths.remove(id);
+        return true;
+    }
+
+    private void readSnapshot(final Path snapshot) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (input.readInt() != VERSION) {
+                persisted = false;
+                return;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                readDocument(input);
+            }
+        }
+    }
+
+    private static void writeDocument(final DataOutputStream output, final UUID id,
+                                      final Map<String, Integer> terms) throws IOException {
+        output.writeLong(id.getMostSignificantBits());
+        output.writeLong(id.getLeastSignificantBits());
+        output.writeInt(terms.size());
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            output.writeUTF(term.getKey());
+            output.writeInt(term.getValue());
+        }
+    }
+
+    private void readDocument(final DataInputStream input) throws IOException {
+        UUID id = new UUID(input.readLong(), input.readLong());
+        int count = input.readInt();
+        Map<String, Integer> terms = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            terms.put(input.readUTF(), input.readInt());
+        }
+        applyPut(id, terms);
+    }
+}
@@ -0,0 +1,53 @@
+package carshare.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of full-text search results ordered by relevance
+ *
+ * @param <T>                                   Type of found item
+ */
+public class FullTextPage<T> {
+
+    private final List<T> items;
+    private final int offset;
+    private final int total;
+
+    public FullTextPage(final List<T> items, final int offset, final int total) {
+        this.items = Collections.unmodifiableList(items);
+        this.offset = offset;
+        this.total = total;
+    }
+
+    /**
+     * Method return found items of this page, the most relevant first
+     *
+     * @return                                  List of items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Method return amount of all matches of query
+     *
+     * @return                                  Total amount of matches
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Method check if there is one more page after this one
+     *
+     * @return                                  True if next page exists
+     */
+    public boolean hasNext() {
+        return offset + items.size() < total;
+    }
+}
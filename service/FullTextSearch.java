@@ -0,0 +1,67 @@
+package carshare.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Persistent full-text indexes of car and category descriptions.
+ * Indexes are loaded from disk on start and written to disk on shutdown,
+ * after crash they are not loaded and services rebuild them from database.
+ */
+@Component
+public class FullTextSearch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FullTextSearch.class);
+
+    private final FullTextIndex carDescriptions;
+    private final FullTextIndex categoryDescriptions;
+
+    @Autowired
+    public FullTextSearch(@Value("${carshare.search.full-text.dir:search-index}") final String dir) {
+        Path root = Paths.get(dir).toAbsolutePath();
+        this.carDescriptions = new FullTextIndex(root.resolve("cars"));
+        this.categoryDescriptions = new FullTextIndex(root.resolve("categories"));
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        carDescriptions.open();
+        categoryDescriptions.open();
+    }
+
+    /**
+     * Method return full-text index of car descriptions
+     *
+     * @return                                  Index of car descriptions by car UUID
+     */
+    public FullTextIndex cars() {
+        return carDescriptions;
+    }
+
+    /**
+     * Method return full-text index of category descriptions
+     *
+     * @return                                  Index of category descriptions by category UUID
+     */
+    public FullTextIndex categories() {
+        return categoryDescriptions;
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            carDescriptions.close();
+            categoryDescriptions.close();
+        } catch (IOException e) {
+            LOGGER.warn("Full-text indexes are not written to disk", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package carshare.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepared response for stored image content: HTTP status, headers and body source.
+ * Body is written straight from file channel to target channel with FileChannel.transferTo,
+ * or from cached off-heap buffer, so bytes are not copied through heap.
+ */
+public class ImageContent implements Closeable {
+
+    public static final int OK = 200;
+    public static final int PARTIAL_CONTENT = 206;
+    public static final int NOT_MODIFIED = 304;
+    public static final int RANGE_NOT_SATISFIABLE = 416;
+
+    private final int status;
+    private final Map<String, String> headers;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long position;
+    private final long length;
+
+    ImageContent(final int status, final Map<String, String> headers,
+                 final FileChannel channel, final long position, final long length) {
+        this(status, headers, channel, null, position, length);
+    }
+
+    ImageContent(final int status, final Map<String, String> headers,
+                 final ByteBuffer buffer, final long position, final long length) {
+        this(status, headers, null, buffer, position, length);
+    }
+
+    private ImageContent(final int status, final Map<String, String> headers, final FileChannel channel,
+                         final ByteBuffer buffer, final long position, final long length) {
+        this.status = status;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = position;
+        this.length = length;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Method return amount of body bytes
+     *
+     * @return                                  Body length, 0 if response has no body
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Method write response body to target channel
+     *
+     * @param target                            Channel of response body
+     * @return                                  Amount of written bytes
+     * @throws IOException                      if body can not be written
+     */
+    public long writeTo(final WritableByteChannel target) throws IOException {
+        if (buffer != null) {
+            ByteBuffer body = buffer.duplicate();
+            body.limit((int) (position + length)).position((int) position);
+            long written = 0;
+            while (body.hasRemaining()) {
+                written += target.write(body);
+            }
+            return written;
+        }
+        if (channel == null) {
+            return 0;
+        }
+        long written = 0;
+        while (written < length) {
+            long transferred = channel.transferTo(position + written, length - written, target);
+            if (transferred <= 0) {
+                break;
+            }
+            written += transferred;
+        }
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
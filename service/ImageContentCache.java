@@ -0,0 +1,207 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded off-heap cache of hot image content.
+ * Cached content is a read-only memory-mapped view of stored file, so it lives outside of heap
+ * and its pages stay resident, hot images are served without disk reads and heap copies.
+ * Content is admitted on second access within admission window, so images which are read once
+ * do not push hot images out. When cache is full the least recently used content is evicted.
+ * Stored content never changes for its key, so cached content is never stale.
+ * Evicted content is not unmapped explicitly, because responses may still read it, mapping is
+ * released when buffer is garbage collected. Until then it is counted in mapped bytes and new content
+ * is not admitted while evicted mappings are bigger than cache size, so mapped memory stays below
+ * two cache sizes.
+ */
+@Component
+public class ImageContentCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final int admissionWindow;
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> seenOnce;
+    private final ReferenceQueue<ByteBuffer> releasedQueue = new ReferenceQueue<>();
+    private final Map<Reference<ByteBuffer>, Long> released = new HashMap<>();
+    private long residentBytes;
+    private long releasedBytes;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    @Autowired
+    public ImageContentCache(
+            @Value("${carshare.images.cache.max-size:256MB}") final DataSize maxSize,
+            @Value("${carshare.images.cache.max-entry-size:8MB}") final DataSize maxEntrySize,
+            @Value("${carshare.images.cache.admission-window:10000}") final int admissionWindow
+    ) {
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxBytes);
+        this.admissionWindow = admissionWindow;
+        this.seenOnce = new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+                return size() > ImageContentCache.this.admissionWindow;
+            }
+        };
+    }
+
+    /**
+     * Method return cached content by key or map stored file if content is accessed second time
+     *
+     * @param key                               Key of stored content
+     * @param path                              Path of stored file
+     * @return                                  Read-only buffer with whole content or null if it is not cached
+     * @throws IOException                      if stored file can not be mapped
+     */
+    public ByteBuffer get(final String key, final Path path) throws IOException {
+        long loadedAt;
+        synchronized (this) {
+            ByteBuffer cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached.duplicate();
+            }
+            misses++;
+            if (maxBytes <= 0 || seenOnce.remove(key) == null) {
+                seenOnce.put(key, Boolean.TRUE);
+                return null;
+            }
+            drainReleased();
+            if (releasedBytes > maxBytes) {
+                return null;
+            }
+            loadedAt = generation;
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > maxEntryBytes) {
+                return null;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        mapped.load();
+        return put(key, mapped, loadedAt).duplicate();
+    }
+
+    /**
+     * Method remove content of blob and all its variants from cache
+     *
+     * @param hash                              SHA-256 hash of stored content in hex
+     */
+    public synchronized void invalidate(final String hash) {
+        generation++;
+        Iterator<Map.Entry<String, ByteBuffer>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ByteBuffer> entry = iterator.next();
+            if (entry.getKey().startsWith(hash)) {
+                release(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Method return snapshot of cache statistics
+     *
+     * @return                                  Hits, misses, evictions and amount of cached images
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+
+    /**
+     * Method return amount of mapped bytes held by cache
+     *
+     * @return                                  Resident bytes
+     */
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Method return amount of bytes which are still mapped because of cache,
+     * cached content and evicted content which is not garbage collected yet
+     *
+     * @return                                  Mapped bytes
+     */
+    public synchronized long getMappedBytes() {
+        drainReleased();
+        return residentBytes + releasedBytes;
+    }
+
+    /**
+     * Method accepts content mapped outside of lock and cache it, if no content was invalidated
+     * since mapping was started. Otherwise content is returned without caching,
+     * because it may belong to deleted blob.
+     *
+     * @param key                               Key of stored content
+     * @param content                           Mapped content
+     * @param loadedAt                          Generation of cache when mapping was started
+     * @return                                  Cached or given content
+     */
+    synchronized ByteBuffer put(final String key, final ByteBuffer content, final long loadedAt) {
+        ByteBuffer cached = entries.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (loadedAt != generation) {
+            return content;
+        }
+        entries.put(key, content);
+        residentBytes += content.capacity();
+        Iterator<ByteBuffer> eldest = entries.values().iterator();
+        while (residentBytes > maxBytes && eldest.hasNext()) {
+            ByteBuffer evicted = eldest.next();
+            if (evicted == content) {
+                continue;
+            }
+            release(evicted);
+            eldest.remove();
+            evictions++;
+        }
+        return content;
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    private void release(final ByteBuffer content) {
+        residentBytes -= content.capacity();
+        releasedBytes += content.capacity();
+        released.put(new PhantomReference<>(content, releasedQueue), (long) content.capacity());
+    }
+
+    private void drainReleased() {
+        Reference<? extends ByteBuffer> reference;
+        while ((reference = releasedQueue.poll()) != null) {
+            Long bytes = released.remove(reference);
+            if (bytes != null) {
+                releasedBytes -= bytes;
+            }
+        }
+    }
+}
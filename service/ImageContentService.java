@@ -0,0 +1,140 @@
+package carshare.service;
+
+import carshare.advice.exception.ImageNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service for serving stored image content and its resized variants.
+ * Content is addressed by hash, so key of content is used as strong ETag and content never changes:
+ * conditional requests with ETag are answered without database and file access,
+ * "If-None-Match: *" matches only stored content.
+ * Single byte ranges are supported, requests with many ranges or invalid range get the whole content.
+ * Hot content is served from off-heap ImageContentCache.
+ */
+@Service
+public class ImageContentService {
+
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d{0,18})-(\\d{0,18})$");
+
+    private final ImageStorage imageStorage;
+    private final ImageContentCache contentCache;
+
+    @Autowired
+    public ImageContentService(final ImageStorage imageStorage, final ImageContentCache contentCache) {
+        this.imageStorage = imageStorage;
+        this.contentCache = contentCache;
+    }
+
+    /**
+     * Method prepare response with stored image content
+     *
+     * @param key                               Hash of image content or "{hash}_{width}" of variant from image url
+     * @param range                             Value of Range header or null
+     * @param ifNoneMatch                       Value of If-None-Match header or null
+     * @return                                  Prepared response, it must be closed after writing
+     * @throws ImageNotFoundException           if content with this hash is not stored
+     * @throws IOException                      if stored content can not be opened
+     */
+    public ImageContent open(final String key, final String range, final String ifNoneMatch)
+            throws ImageNotFoundException, IOException {
+        Path path = imageStorage.pathOfKey(key)
+                .orElseThrow(() -> new ImageNotFoundException("Image not exists."));
+        String etag = "\"" + key + "\"";
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("ETag", etag);
+        headers.put("Cache-Control", "public, max-age=31536000, immutable");
+        headers.put("Accept-Ranges", "bytes");
+        if (matches(ifNoneMatch, etag, path)) {
+            return new ImageContent(ImageContent.NOT_MODIFIED, headers, (FileChannel) null, 0, 0);
+        }
+
+        ByteBuffer cached = contentCache.get(key, path);
+        FileChannel channel = null;
+        if (cached == null) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                throw new ImageNotFoundException("Image not exists.");
+            }
+        }
+        try {
+            long size = cached != null ? cached.capacity() : channel.size();
+            Matcher matcher = range == null ? null : RANGE.matcher(range.trim());
+            if (matcher == null || !matcher.matches() || !isValid(matcher)) {
+                headers.put("Content-Length", Long.toString(size));
+                return body(ImageContent.OK, headers, channel, cached, 0, size);
+            }
+            long start;
+            long end;
+            if (matcher.group(1).isEmpty()) {
+                long suffix = Long.parseLong(matcher.group(2));
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(matcher.group(1));
+                end = matcher.group(2).isEmpty() ? size - 1 : Math.min(size - 1, Long.parseLong(matcher.group(2)));
+            }
+            if (start >= size || start > end) {
+                close(channel);
+                headers.put("Content-Range", "bytes */" + size);
+                return new ImageContent(ImageContent.RANGE_NOT_SATISFIABLE, headers, (FileChannel) null, 0, 0);
+            }
+            long length = end - start + 1;
+            headers.put("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            headers.put("Content-Length", Long.toString(length));
+            return body(ImageContent.PARTIAL_CONTENT, headers, channel, cached, start, length);
+        } catch (IOException | RuntimeException e) {
+            close(channel);
+            throw e;
+        }
+    }
+
+    private static ImageContent body(final int status, final Map<String, String> headers, final FileChannel channel,
+                                     final ByteBuffer cached, final long position, final long length) {
+        return cached != null
+                ? new ImageContent(status, headers, cached, position, length)
+                : new ImageContent(status, headers, channel, position, length);
+    }
+
+    private static void close(final FileChannel channel) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private static boolean isValid(final Matcher range) {
+        if (range.group(1).isEmpty() || range.group(2).isEmpty()) {
+            return !range.group(1).isEmpty() || !range.group(2).isEmpty();
+        }
+        // range with last byte before first byte is invalid and is ignored, it is not unsatisfiable
+        return Long.parseLong(range.group(1)) <= Long.parseLong(range.group(2));
+    }
+
+    private static boolean matches(final String ifNoneMatch, final String etag, final Path path) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*") && Files.exists(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package carshare.service;
+
+import carshare.database.entity.Image;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+/**
+ * Projection queries over images
+ */
+@Component
+public class ImageQueries {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public ImageQueries(final EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Method count images which reference the same url
+     *
+     * @param url                               Image url
+     * @return                                  Amount of images with this url
+     */
+    public long countByUrl(final String url) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Image> root = query.from(Image.class);
+        query.select(builder.count(root)).where(builder.equal(root.get("url"), url));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
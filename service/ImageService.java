@@ -2,15 +2,33 @@ package carshare.service;
 
 import carshare.advice.exception.ImageCreationException;
 import carshare.advice.exception.ImageNotFoundException;
+import carshare.database.entity.Car;
 import carshare.database.entity.Image;
 import carshare.database.repository.ImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for image management
@@ -18,11 +36,37 @@ import java.util.UUID;
 @Service
 public class ImageService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageService.class);
+
     private final ImageRepository imageRepository;
+    private final KeysetPager keysetPager;
+    private final BatchWriter batchWriter;
+    private final ImageStorage imageStorage;
+    private final ImageQueries imageQueries;
+    private final ImageVariantPipeline variantPipeline;
+    private final ImageContentCache contentCache;
+    private final Duration deleteSweepInterval;
+    private final ScheduledExecutorService deleteSweeper;
 
     @Autowired
-    public ImageService(final ImageRepository imageRepository) {
+    public ImageService(final ImageRepository imageRepository, final KeysetPager keysetPager,
+                        final BatchWriter batchWriter, final ImageStorage imageStorage,
+                        final ImageQueries imageQueries, final ImageVariantPipeline variantPipeline,
+                        final ImageContentCache contentCache,
+                        @Value("${carshare.images.delete-sweep-interval:5m}") final Duration deleteSweepInterval) {
         this.imageRepository = imageRepository;
+        this.keysetPager = keysetPager;
+        this.batchWriter = batchWriter;
+        this.imageStorage = imageStorage;
+        this.imageQueries = imageQueries;
+        this.variantPipeline = variantPipeline;
+        this.contentCache = contentCache;
+        this.deleteSweepInterval = deleteSweepInterval;
+        this.deleteSweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-delete-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -36,7 +80,41 @@ public class ImageService {
         if (image == null) {
             throw new ImageCreationException("Check your image data.");
         }
-        return imageRepository.save(image);
+        Image createdImage = imageRepository.save(image);
+        generateVariantsAfterCommit(createdImage.getUrl());
+        return createdImage;
+    }
+
+    /**
+     * Method accepts image content, stream it to content-addressed storage and save image to database.
+     * Equal images share one stored file. Content is streamed before transaction is started,
+     * so slow upload does not hold database connection, image row is saved in its own short transaction.
+     * If row is not saved, stored content is released after delete grace.
+     *
+     * @param content                               Image content, it is not closed by this method
+     * @param car                                   Car of image
+     * @return                                      Image data with url of stored content
+     * @throws ImageCreationException               if image content is not stored
+     */
+    public Image upload(final InputStream content, final Car car) throws ImageCreationException {
+        if (content == null) {
+            throw new ImageCreationException("Check your image data.");
+        }
+        String hash;
+        try {
+            hash = imageStorage.store(content);
+        } catch (IOException e) {
+            throw new ImageCreationException("Image content is not stored: " + e.getMessage());
+        }
+        Image createdImage;
+        try {
+            createdImage = imageRepository.save(new Image(null, imageStorage.urlOf(hash), car));
+        } catch (RuntimeException e) {
+            releaseContentAfterCommit(Collections.singletonList(imageStorage.urlOf(hash)));
+            throw e;
+        }
+        generateVariantsAfterCommit(createdImage.getUrl());
+        return createdImage;
     }
 
     /**
@@ -46,11 +124,37 @@ public class ImageService {
      * @return                                      Image data
      * @throws ImageNotFoundException               if image not found
      */
+    @Transactional(readOnly = true)
     public Image getById(final UUID imageId) throws ImageNotFoundException {
-        if (!imageRepository.existsById(imageId)){
-            throw new ImageNotFoundException("Image not exists.");
-        }
-        return imageRepository.findById(imageId).orElse(new Image());
+        return RepositoryLookups.findOrThrow(imageRepository, imageId,
+                () -> new ImageNotFoundException("Image not exists."));
+    }
+
+    /**
+     * Method accepts UUID of image and width which client can show and return read-only view of image
+     * with url of the widest resized variant which fits, or original url if no variant is ready yet
+     *
+     * @param imageId                               UUID of image data
+     * @param maxWidth                              Max width of image on client
+     * @return                                      Image view with url of variant or original
+     * @throws ImageNotFoundException               if image not found
+     */
+    @Transactional(readOnly = true)
+    public ImageView getById(final UUID imageId, final int maxWidth) throws ImageNotFoundException {
+        Image image = getById(imageId);
+        String url = variantPipeline.variantUrl(image.getUrl(), maxWidth).orElse(image.getUrl());
+        return new ImageView(image.getId(), url, image.getUrl(), image.getCar() == null ? null : image.getCar().getId());
+    }
+
+    /**
+     * Method accepts UUIDs of images and return all of them with few "in" queries
+     *
+     * @param imageIds                              UUIDs of images
+     * @return                                      Found images in order of UUIDs and missing UUIDs
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<Image> getByIds(final Collection<UUID> imageIds) {
+        return RepositoryLookups.findAllOrdered(imageRepository, imageIds, Image::getId);
     }
 
     /**
@@ -58,10 +162,46 @@ public class ImageService {
      *
      * @return                                      List of all images
      */
+    @Transactional(readOnly = true)
     public List<Image> getAll() {
         return new ArrayList<>((Collection<? extends Image>) imageRepository.findAll());
     }
 
+    /**
+     * Method return one page of images ordered by UUID, started after given cursor
+     *
+     * @param after                                 Cursor from previous page, null for first page
+     * @param size                                  Max amount of images on page
+     * @return                                      Page of images with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Image> getPage(final UUID after, final int size) {
+        return keysetPager.page(Image.class, after, size, Image::getId);
+    }
+
+    /**
+     * Method return one page of the newest images, started before given cursor
+     *
+     * @param before                                Cursor from previous page, null for first page
+     * @param size                                  Max amount of images on page
+     * @return                                      Page of images with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Image> getNewestPage(final UUID before, final int size) {
+        return keysetPager.newestPage(Image.class, before, size, Image::getId);
+    }
+
+    /**
+     * Method return lazy stream of all images, which is read from database by chunks,
+     * so memory used by one call does not depend on amount of images
+     *
+     * @param chunkSize                             Amount of images read by one query
+     * @return                                      Stream of all images
+     */
+    public Stream<Image> stream(final int chunkSize) {
+        return keysetPager.stream(Image.class, chunkSize, Image::getId);
+    }
+
     /**
      * Method accepts image data change fields and rewrite it to database
      *
@@ -69,10 +209,14 @@ public class ImageService {
      */
     @Transactional
     public Image update(final Image image) throws ImageNotFoundException {
-        if (!imageRepository.existsById(image.getId())){
-            throw new ImageNotFoundException("Image not exists.");
+        String previousUrl = RepositoryLookups.findOrThrow(imageRepository, image.getId(),
+                () -> new ImageNotFoundException("Image not exists.")).getUrl();
+        Image updatedImage = imageRepository.save(image);
+        if (!Objects.equals(previousUrl, image.getUrl())) {
+            releaseContentAfterCommit(Collections.singletonList(previousUrl));
+            generateVariantsAfterCommit(image.getUrl());
         }
-        return imageRepository.save(image);
+        return updatedImage;
     }
 
     /**
@@ -83,10 +227,134 @@ public class ImageService {
      */
     @Transactional
     public UUID delete(final UUID imageId) throws ImageNotFoundException {
-        if (!imageRepository.existsById(imageId)){
-            throw new ImageNotFoundException("Image not exists.");
+        return deleteImage(imageId);
+    }
+
+    /**
+     * Method accepts list of images and save them to database in chunked batches,
+     * invalid image does not stop other images
+     *
+     * @param images                                List of image data
+     * @return                                      Result for every image in order of list
+     */
+    public List<BatchItemResult<Image>> createAll(final List<Image> images) {
+        return batchWriter.write(images, image -> {
+            if (image == null) {
+                throw new ImageCreationException("Check your image data.");
+            }
+            Image createdImage = imageRepository.save(image);
+            generateVariantsAfterCommit(createdImage.getUrl());
+            return createdImage;
+        });
+    }
+
+    /**
+     * Method accepts list of images and rewrite them to database in chunked batches.
+     * Existing images of every chunk are loaded by one query.
+     *
+     * @param images                                List of image data
+     * @return                                      Result for every image in order of list
+     */
+    public List<BatchItemResult<Image>> updateAll(final List<Image> images) {
+        return batchWriter.write(images,
+                chunk -> imageRepository.findAllById(chunk.stream()
+                        .filter(image -> image != null && image.getId() != null)
+                        .map(Image::getId)
+                        .collect(Collectors.toList())),
+                image -> {
+                    if (image == null || image.getId() == null) {
+                        throw new ImageNotFoundException("Image not exists.");
+                    }
+                    return RepositoryLookups.updateOrThrow(imageRepository, image.getId(), image,
+                            () -> new ImageNotFoundException("Image not exists."));
+                });
+    }
+
+    /**
+     * Method accepts list of image UUIDs and delete them from database in chunked batches.
+     * Images of every chunk are loaded by one query.
+     *
+     * @param imageIds                              List of image UUIDs
+     * @return                                      Result for every UUID in order of list
+     */
+    public List<BatchItemResult<UUID>> deleteAll(final List<UUID> imageIds) {
+        return batchWriter.write(imageIds,
+                chunk -> imageRepository.findAllById(chunk.stream()
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList())),
+                imageId -> {
+                    if (imageId == null) {
+                        throw new ImageNotFoundException("Image not exists.");
+                    }
+                    return deleteImage(imageId);
+                });
+    }
+
+    /**
+     * Method free stored content of removed images after transaction is committed.
+     * Content is freed only when no other image references it.
+     *
+     * @param urls                                  Urls of removed images
+     */
+    void releaseContentAfterCommit(final Collection<String> urls) {
+        List<String> hashes = urls.stream()
+                .map(imageStorage::hashOf)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .distinct()
+                .collect(Collectors.toList());
+        if (!hashes.isEmpty()) {
+            TransactionHooks.afterCommit(() -> hashes.forEach(this::releaseContent));
         }
-        imageRepository.deleteById(imageId);
+    }
+
+    private void generateVariantsAfterCommit(final String url) {
+        imageStorage.hashOf(url).ifPresent(hash -> TransactionHooks.afterCommit(() -> variantPipeline.submit(hash)));
+    }
+
+    private UUID deleteImage(final UUID imageId) throws ImageNotFoundException {
+        Image image = RepositoryLookups.findOrThrow(imageRepository, imageId,
+                () -> new ImageNotFoundException("Image not exists."));
+        imageRepository.delete(image);
+        releaseContentAfterCommit(Collections.singletonList(image.getUrl()));
         return imageId;
     }
-}
+
+    /**
+     * Method check again deletes of stored content which were deferred by delete grace.
+     * Content which is still not referenced is deleted, content which is referenced again is kept.
+     */
+    public void sweepDeferredDeletes() {
+        try {
+            imageStorage.deferredDeletes().forEach(this::releaseContent);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Deferred image content deletes are not checked", e);
+        }
+    }
+
+    /**
+     * Method start periodic check of deferred content deletes, including deletes left by previous run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDeleteSweeper() {
+        long interval = Math.max(1, deleteSweepInterval.toMillis());
+        deleteSweeper.scheduleWithFixedDelay(this::sweepDeferredDeletes, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deleteSweeper.shutdown();
+    }
+
+    private void releaseContent(final String hash) {
+        try {
+            if (imageQueries.countByUrl(imageStorage.urlOf(hash)) > 0) {
+                imageStorage.cancelDelete(hash);
+            } else if (imageStorage.delete(hash)) {
+                contentCache.invalidate(hash);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Image content {} is not released", hash, e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local content-addressed storage of image files.
+ * Files are streamed to disk through NIO channels and named by SHA-256 of content,
+ * so equal images are stored once. Blob is referenced by image url "{url-prefix}{hash}".
+ * Resized variants of blob are stored next to it and have keys "{hash}_{width}".
+ */
+@Component
+public class ImageStorage {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern KEY = Pattern.compile("([0-9a-f]{64})(?:_(\\d{1,5}))?");
+    private static final String VARIANT_EXTENSION = ".jpg";
+    private static final String DEFERRED_DELETES_DIR = "deferred-deletes";
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final String urlPrefix;
+    private final long maxSize;
+    private final Duration deleteGrace;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public ImageStorage(
+            @Value("${carshare.images.storage-dir:images}") final String root,
+            @Value("${carshare.images.url-prefix:/images/blobs/}") final String urlPrefix,
+            @Value("${carshare.images.max-size:20MB}") final DataSize maxSize,
+            @Value("${carshare.images.delete-grace:10m}") final Duration deleteGrace
+    ) {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.urlPrefix = urlPrefix;
+        this.maxSize = maxSize.toBytes();
+        this.deleteGrace = deleteGrace;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Method accepts image content and store it by hash of content.
+     * Content is never loaded on heap as a whole, if the same content is already stored
+     * the new copy is dropped.
+     *
+     * @param content                           Image content, it is not closed by this method
+     * @return                                  SHA-256 hash of content in hex
+     * @throws IOException                      if content can not be stored or is too big
+     */
+    public String store(final InputStream content) throws IOException {
+        Path temporaryDir = Files.createDirectories(root.resolve("tmp"));
+        Path temporary = temporaryDir.resolve(UUID.randomUUID().toString());
+        try {
+            MessageDigest digest = sha256();
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(content, digest));
+                 FileChannel target = FileChannel.open(temporary,
+                         StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                    if (position > maxSize) {
+                        throw new IOException("Image is bigger than " + maxSize + " bytes.");
+                    }
+                }
+            }
+            String hash = toHex(digest.digest());
+            Path blob = pathOf(hash);
+            Files.createDirectories(blob.getParent());
+            // equal blob is replaced by the new copy, so its modification time is refreshed
+            // and it is not freed during delete grace, lock keeps concurrent delete of the same hash out
+            synchronized (lockOf(hash)) {
+                Files.move(temporary, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Method return path of stored blob by hash
+     *
+     * @param hash                              SHA-256 hash of content in hex
+     * @return                                  Path of blob file
+     */
+    public Path pathOf(final String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Method return path of resized variant of stored blob
+     *
+     * @param hash                              SHA-256 hash of original content in hex
+     * @param width                             Width of variant
+     * @return                                  Path of variant file
+     */
+    public Path variantPathOf(final String hash, final int width) {
+        return pathOf(hash).resolveSibling(hash + "_" + width + VARIANT_EXTENSION);
+    }
+
+    /**
+     * Method return path of blob or variant by its key
+     *
+     * @param key                               Hash of blob or "{hash}_{width}" of variant
+     * @return                                  Path of file or empty if key is invalid
+     */
+    public Optional<Path> pathOfKey(final String key) {
+        Matcher matcher = key == null ? null : KEY.matcher(key);
+        if (matcher == null || !matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(matcher.group(2) == null
+                ? pathOf(matcher.group(1))
+                : variantPathOf(matcher.group(1), Integer.parseInt(matcher.group(2))));
+    }
+
+    /**
+     * Method return directory for internal storage files, for example job markers
+     *
+     * @param name                              Name of directory
+     * @return                                  Path of directory inside storage root
+     * @throws IOException                      if directory can not be created
+     */
+    public Path workDir(final String name) throws IOException {
+        return Files.createDirectories(root.resolve(name));
+    }
+
+    /**
+     * Method return image url for stored blob
+     *
+     * @param hash                              SHA-256 hash of content in hex
+     * @return                                  Image url
+     */
+    public String urlOf(final String hash) {
+        return urlPrefix + hash;
+    }
+
+    /**
+     * Method return image url for resized variant of stored blob
+     *
+     * @param hash                              SHA-256 hash of original content in hex
+     * @param width                             Width of variant
+     * @return                                  Image url
+     */
+    public String urlOf(final String hash, final int width) {
+        return urlPrefix + hash + "_" + width;
+    }
+
+    /**
+     * Method return hash of blob referenced by image url
+     *
+     * @param url                               Image url
+     * @return                                  Hash of blob or empty if url does not reference stored blob
+     */
+    public Optional<String> hashOf(final String url) {
+        if (url == null || !url.startsWith(urlPrefix)) {
+            return Optional.empty();
+        }
+        String hash = url.substring(urlPrefix.length());
+        return isHash(hash) ? Optional.of(hash) : Optional.empty();
+    }
+
+    /**
+     * Method check if string is a valid blob hash
+     *
+     * @param hash                              Checked string
+     * @return                                  True if string is lowercase hex SHA-256
+     */
+    public boolean isHash(final String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    /**
+     * Method delete blob which is not referenced by any image anymore.
+     * Blob which was stored again during grace period is kept, because new image may reference it
+     * before its row is committed. Kept blob gets a marker in "deferred-deletes" storage directory,
+     * so the delete is checked again later, see deferredDeletes.
+     * Grace check and delete hold the same per hash lock as store, so blob stored concurrently is never deleted.
+     *
+     * @param hash                              SHA-256 hash of content in hex
+     * @return                                  True if blob is deleted or not stored, false if delete is deferred
+     * @throws IOException                      if blob can not be deleted
+     */
+    public boolean delete(final String hash) throws IOException {
+        Path blob = pathOf(hash);
+        Path marker = workDir(DEFERRED_DELETES_DIR).resolve(hash);
+        synchronized (lockOf(hash)) {
+            return deleteUnlocked(hash, blob, marker);
+        }
+    }
+
+    private boolean deleteUnlocked(final String hash, final Path blob, final Path marker) throws IOException {
+        if (!Files.exists(blob)) {
+            Files.deleteIfExists(marker);
+            return true;
+        }
+        Instant lastStored = Files.getLastModifiedTime(blob).toInstant();
+        if (!lastStored.plus(deleteGrace).isBefore(Instant.now())) {
+            if (!Files.exists(marker)) {
+                Files.createFile(marker);
+            }
+            return false;
+        }
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(blob.getParent(),
+                hash + "_*" + VARIANT_EXTENSION)) {
+            for (Path variant : variants) {
+                Files.deleteIfExists(variant);
+            }
+        }
+        Files.deleteIfExists(blob);
+        Files.deleteIfExists(marker);
+        return true;
+    }
+
+    /**
+     * Method return hashes of blobs which delete was deferred by grace period
+     *
+     * @return                                  Hashes of blobs to check again
+     * @throws IOException                      if markers can not be read
+     */
+    public List<String> deferredDeletes() throws IOException {
+        List<String> hashes = new ArrayList<>();
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(workDir(DEFERRED_DELETES_DIR))) {
+            for (Path marker : markers) {
+                String hash = marker.getFileName().toString();
+                if (isHash(hash)) {
+                    hashes.add(hash);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Method forget deferred delete of blob, for example when blob is referenced again
+     *
+     * @param hash                              SHA-256 hash of content in hex
+     * @throws IOException                      if marker can not be deleted
+     */
+    public void cancelDelete(final String hash) throws IOException {
+        Files.deleteIfExists(workDir(DEFERRED_DELETES_DIR).resolve(hash));
+    }
+
+    private Object lockOf(final String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
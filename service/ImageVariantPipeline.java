@@ -0,0 +1,284 @@
+package carshare.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background generation of resized image variants.
+ * Every submitted blob gets a marker file in "pending" storage directory, marker is removed
+ * only when all variants are written, so unfinished work is resumed after restart.
+ * Variants are written to temporary file and moved in place, existing variants are skipped,
+ * so running the same job twice is harmless. Job which does not fit into full queue stays pending
+ * and pending jobs are scheduled again when queue is drained.
+ * Dimensions are read before image is decoded, images with more pixels than limit are not decoded.
+ */
+@Component
+public class ImageVariantPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageVariantPipeline.class);
+    private static final String PENDING_DIR = "pending";
+    private static final String FORMAT = "jpg";
+
+    private final ImageStorage imageStorage;
+    private final int[] widths;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final AtomicBoolean dropped = new AtomicBoolean();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final LatencyRecorder processingTimings = new LatencyRecorder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public ImageVariantPipeline(
+            final ImageStorage imageStorage,
+            @Value("${carshare.images.variant-widths:160,480,1024}") final int[] widths,
+            @Value("${carshare.images.variant-threads:2}") final int threads,
+            @Value("${carshare.images.variant-queue-size:256}") final int queueSize,
+            @Value("${carshare.images.variant-max-pixels:40000000}") final long maxPixels
+    ) {
+        this.imageStorage = imageStorage;
+        this.widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        this.maxPixels = maxPixels;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new VariantThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Method accepts hash of stored blob and schedule generation of its variants.
+     * When queue is full job stays pending and is picked up when queue is drained or on next restart.
+     *
+     * @param hash                              SHA-256 hash of stored content in hex
+     */
+    public void submit(final String hash) {
+        if (!imageStorage.isHash(hash)) {
+            return;
+        }
+        try {
+            Files.createFile(imageStorage.workDir(PENDING_DIR).resolve(hash));
+        } catch (FileAlreadyExistsException e) {
+            LOGGER.debug("Variants of {} are already pending", hash);
+        } catch (IOException e) {
+            LOGGER.warn("Variants job of {} is not persisted", hash, e);
+        }
+        enqueue(hash);
+    }
+
+    /**
+     * Method schedule all pending jobs, jobs left by previous run or dropped by full queue
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(imageStorage.workDir(PENDING_DIR))) {
+            for (Path marker : markers) {
+                enqueue(marker.getFileName().toString());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Pending variants jobs are not resumed", e);
+        }
+    }
+
+    /**
+     * Method accepts image url and return url of widest variant which fits into requested width.
+     * When no variant fits, smallest ready variant is returned, it is still smaller than original.
+     *
+     * @param url                               Url of original image
+     * @param maxWidth                          Max width which client can show
+     * @return                                  Url of variant or empty if there is no ready variant
+     */
+    public Optional<String> variantUrl(final String url, final int maxWidth) {
+        Optional<String> hash = imageStorage.hashOf(url);
+        if (!hash.isPresent()) {
+            return Optional.empty();
+        }
+        for (int i = widths.length - 1; i >= 0; i--) {
+            if (widths[i] <= maxWidth && Files.exists(imageStorage.variantPathOf(hash.get(), widths[i]))) {
+                return Optional.of(imageStorage.urlOf(hash.get(), widths[i]));
+            }
+        }
+        for (int width : widths) {
+            if (width > maxWidth && Files.exists(imageStorage.variantPathOf(hash.get(), width))) {
+                return Optional.of(imageStorage.urlOf(hash.get(), width));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Method generate missing variants of stored blob on caller thread and remove its pending marker.
+     * Variants wider than original are not generated.
+     *
+     * @param hash                              SHA-256 hash of stored content in hex
+     * @throws IOException                      if blob can not be read or variant can not be written
+     */
+    void generate(final String hash) throws IOException {
+        BufferedImage original = null;
+        for (int width : widths) {
+            Path variant = imageStorage.variantPathOf(hash, width);
+            if (Files.exists(variant)) {
+                continue;
+            }
+            if (original == null) {
+                original = read(hash);
+                if (original == null) {
+                    break;
+                }
+            }
+            if (width >= original.getWidth()) {
+                break;
+            }
+            write(resize(original, width), variant);
+        }
+        Files.deleteIfExists(imageStorage.workDir(PENDING_DIR).resolve(hash));
+    }
+
+    /**
+     * Method return amount of jobs which wait in queue
+     *
+     * @return                                  Queue depth
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public LatencyRecorder getProcessingTimings() {
+        return processingTimings;
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void enqueue(final String hash) {
+        if (!imageStorage.isHash(hash) || !inFlight.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> process(hash));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            dropped.set(true);
+            LOGGER.warn("Variants queue is full, variants of {} are left pending", hash);
+        }
+    }
+
+    private void process(final String hash) {
+        long start = System.nanoTime();
+        try {
+            generate(hash);
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            LOGGER.warn("Variants of {} are not generated", hash, e);
+        } finally {
+            inFlight.remove(hash);
+            processingTimings.record(System.nanoTime() - start);
+        }
+        if (executor.getQueue().isEmpty() && dropped.compareAndSet(true, false) && !executor.isShutdown()) {
+            resumePending();
+        }
+    }
+
+    private BufferedImage read(final String hash) throws IOException {
+        Path path = imageStorage.pathOf(hash);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                LOGGER.info("Content {} is not a readable image, variants are skipped", hash);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    LOGGER.info("Content {} has {} pixels, more than {}, variants are skipped", hash, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private BufferedImage resize(final BufferedImage original, final int width) {
+        int height = Math.max(1, (int) Math.round((double) original.getHeight() * width / original.getWidth()));
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private void write(final BufferedImage image, final Path variant) throws IOException {
+        Path temporary = Files.createTempFile(imageStorage.workDir("tmp"), "variant", ".tmp");
+        try {
+            if (!ImageIO.write(image, FORMAT, temporary.toFile())) {
+                throw new IOException("No writer for " + FORMAT);
+            }
+            Files.move(temporary, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static final class VariantThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, "image-variants-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
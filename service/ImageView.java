@@ -0,0 +1,54 @@
+package carshare.service;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Read-only view of image for client which shows it in limited width.
+ * Url is url of the widest resized variant which fits, or original url if no variant fits or is ready yet.
+ * Image entity is not changed, so variant url is never written to database.
+ */
+public class ImageView {
+
+    private final UUID id;
+    private final String url;
+    private final String originalUrl;
+    private final UUID carId;
+
+    public ImageView(final UUID id, final String url, final String originalUrl, final UUID carId) {
+        this.id = id;
+        this.url = url;
+        this.originalUrl = originalUrl;
+        this.carId = carId;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Method return url which client should load
+     *
+     * @return                                  Url of variant or original url
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public String getOriginalUrl() {
+        return originalUrl;
+    }
+
+    public UUID getCarId() {
+        return carId;
+    }
+
+    /**
+     * Method check if url references resized variant
+     *
+     * @return                                  True if url is not original url
+     */
+    public boolean isVariant() {
+        return !Objects.equals(url, originalUrl);
+    }
+}
@@ -0,0 +1,15 @@
+package carshare.service;
+
+/**
+ * Format of bulk import file
+ */
+public enum ImportFormat {
+    /**
+     * Comma separated values with header row, nested fields are named with dots, for example "user.id"
+     */
+    CSV,
+    /**
+     * One JSON object per line
+     */
+    NDJSON
+}
@@ -0,0 +1,122 @@
+package carshare.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress and per-stage counters of bulk import.
+ * Parse stage counts records read from file, hash stage counts passwords hashed
+ * while import was running and write stage counts records written to database.
+ */
+public class ImportReport {
+
+    private static final int MAX_FAILURES = 100;
+
+    private final LongAdder skippedRecords = new LongAdder();
+    private final LongAdder parsedRecords = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder importedRecords = new LongAdder();
+    private final LongAdder failedRecords = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final List<String> failures = new ArrayList<>();
+    private volatile long hashedPasswords;
+    private volatile long hashNanos;
+    private volatile long elapsedNanos;
+
+    void recordSkipped(final long records) {
+        skippedRecords.add(records);
+    }
+
+    void recordParsed(final long records, final long nanos) {
+        parsedRecords.add(records);
+        parseNanos.add(nanos);
+    }
+
+    void recordWritten(final long imported, final long failed, final long nanos) {
+        importedRecords.add(imported);
+        failedRecords.add(failed);
+        writeNanos.add(nanos);
+    }
+
+    void recordHashed(final long passwords, final long nanos) {
+        hashedPasswords = passwords;
+        hashNanos = nanos;
+    }
+
+    void recordElapsed(final long nanos) {
+        elapsedNanos = nanos;
+    }
+
+    synchronized void addFailure(final long recordNumber, final String error) {
+        if (failures.size() < MAX_FAILURES) {
+            failures.add("Record " + recordNumber + ": " + error);
+        }
+    }
+
+    public long getSkippedRecords() {
+        return skippedRecords.sum();
+    }
+
+    public long getParsedRecords() {
+        return parsedRecords.sum();
+    }
+
+    public long getImportedRecords() {
+        return importedRecords.sum();
+    }
+
+    public long getFailedRecords() {
+        return failedRecords.sum();
+    }
+
+    public long getHashedPasswords() {
+        return hashedPasswords;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Method return first failures of import
+     *
+     * @return                                  Descriptions of failed records, at most 100
+     */
+    public synchronized List<String> getFailures() {
+        return Collections.unmodifiableList(new ArrayList<>(failures));
+    }
+
+    /**
+     * Method return throughput of file parsing
+     *
+     * @return                                  Parsed records per second of parse stage time
+     */
+    public double getParseRecordsPerSecond() {
+        return perSecond(parsedRecords.sum(), parseNanos.sum());
+    }
+
+    /**
+     * Method return throughput of password hashing, summed over all hashing threads
+     *
+     * @return                                  Hashed passwords per second of hashing time
+     */
+    public double getHashPasswordsPerSecond() {
+        return perSecond(hashedPasswords, hashNanos);
+    }
+
+    /**
+     * Method return throughput of database writing
+     *
+     * @return                                  Written records per second of write stage time
+     */
+    public double getWriteRecordsPerSecond() {
+        return perSecond(importedRecords.sum() + failedRecords.sum(), writeNanos.sum());
+    }
+
+    private static double perSecond(final long amount, final long nanos) {
+        return nanos == 0 ? 0 : amount * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
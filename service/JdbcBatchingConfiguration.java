@@ -0,0 +1,24 @@
+package carshare.service;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate settings which BatchWriter depends on.
+ * Without ordering, cascaded inserts and updates of different entities interleave,
+ * so every change of statement closes the JDBC batch, for example car, image, car, image.
+ * Values from application properties are kept if they are set.
+ */
+@Configuration
+public class JdbcBatchingConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.order_inserts", "true");
+            properties.putIfAbsent("hibernate.order_updates", "true");
+            properties.putIfAbsent("hibernate.jdbc.batch_versioned_data", "true");
+        };
+    }
+}
@@ -0,0 +1,179 @@
+package carshare.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-thread running totals of JDBC work: time spent in driver, executed statements and fetched rows.
+ * Totals only grow, so caller takes snapshot before operation and subtracts it after operation,
+ * nested operations on the same thread measure themselves without resetting outer ones.
+ * While capture is started, executed statements are also kept with their SQL, time and lazy load origin.
+ * Lazy loads are marked by LazyLoadListener, so stack is walked only for kept statements issued by lazy loads,
+ * once per lazy load, and other statements stay as cheap as counters.
+ */
+final class JdbcCallStats {
+
+    private static final ThreadLocal<JdbcCallStats> CURRENT = ThreadLocal.withInitial(JdbcCallStats::new);
+    private static final String[] LAZY_INITIALIZERS = {
+            "org.hibernate.collection.internal.AbstractPersistentCollection",
+            "org.hibernate.proxy.AbstractLazyInitializer"
+    };
+
+    private long nanos;
+    private long statements;
+    private long rows;
+    private List<CapturedStatement> captured;
+    private int maxCaptured;
+    private boolean detectLazyLoads;
+    private int skipped;
+    private int lazyLoads;
+    private String lazyLoadOrigin;
+
+    private JdbcCallStats() {
+    }
+
+    static JdbcCallStats current() {
+        return CURRENT.get();
+    }
+
+    void addStatement(final String sql, final long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        if (captured == null) {
+            return;
+        }
+        if (captured.size() == maxCaptured) {
+            skipped++;
+            return;
+        }
+        String origin = null;
+        if (detectLazyLoads && lazyLoads > 0) {
+            if (lazyLoadOrigin == null) {
+                lazyLoadOrigin = lazyLoadOrigin();
+            }
+            origin = lazyLoadOrigin;
+        }
+        captured.add(new CapturedStatement(sql, elapsedNanos, origin));
+    }
+
+    /**
+     * Method mark start of lazy initialization on this thread, statements until exitLazyLoad are lazy loads
+     */
+    void enterLazyLoad() {
+        lazyLoads++;
+    }
+
+    /**
+     * Method mark end of lazy initialization started by enterLazyLoad
+     */
+    void exitLazyLoad() {
+        if (--lazyLoads == 0) {
+            lazyLoadOrigin = null;
+        }
+    }
+
+    void addFetch(final long elapsedNanos, final boolean row) {
+        nanos += elapsedNanos;
+        if (row) {
+            rows++;
+        }
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    long getStatements() {
+        return statements;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Method start capture of statements on this thread
+     *
+     * @param maxStatements                     Max amount of kept statements, others are only counted
+     * @param lazyLoads                         True to find lazy load origin of kept statements
+     * @return                                  False if capture is already started by outer operation
+     */
+    boolean startCapture(final int maxStatements, final boolean lazyLoads) {
+        if (captured != null) {
+            return false;
+        }
+        captured = new ArrayList<>();
+        maxCaptured = maxStatements;
+        detectLazyLoads = lazyLoads;
+        skipped = 0;
+        return true;
+    }
+
+    /**
+     * Method stop capture started by startCapture
+     *
+     * @return                                  Captured statements in order of execution
+     */
+    List<CapturedStatement> stopCapture() {
+        List<CapturedStatement> result = captured == null ? Collections.emptyList() : captured;
+        captured = null;
+        return result;
+    }
+
+    /**
+     * Method return amount of statements which were executed during last capture but not kept
+     *
+     * @return                                  Amount of skipped statements
+     */
+    int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Method return first carshare frame which caused lazy initialization, or "unknown" if it is not found
+     */
+    private static String lazyLoadOrigin() {
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        boolean lazy = false;
+        for (StackTraceElement frame : stack) {
+            if (!lazy) {
+                for (String initializer : LAZY_INITIALIZERS) {
+                    lazy |= frame.getClassName().equals(initializer);
+                }
+            } else if (frame.getClassName().startsWith("carshare.")
+                    && !frame.getClassName().contains("$HibernateProxy$")) {
+                return frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Statement executed during capture
+     */
+    static final class CapturedStatement {
+
+        private final String sql;
+        private final long nanos;
+        private final String lazyLoadOrigin;
+
+        CapturedStatement(final String sql, final long nanos, final String lazyLoadOrigin) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.lazyLoadOrigin = lazyLoadOrigin;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+
+        String getLazyLoadOrigin() {
+            return lazyLoadOrigin;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package carshare.service;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Wraps data sources into thin JDBC proxies which add time of statement execution and row fetching,
+ * amount of statements and amount of rows to JdbcCallStats of calling thread.
+ * Statements remember their SQL, so captured statements of slow operations can be logged.
+ * Proxies only read clock and increment thread-local fields, so they can stay on under full load.
+ * Proxy is equal only to itself, so pools and Hibernate can keep wrapped connections and statements in hash sets.
+ */
+@Component
+public class JdbcInstrumentation implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (bean instanceof DataSource && !isInstrumented(bean)) {
+            return wrap(bean, DataSource.class, null);
+        }
+        return bean;
+    }
+
+    /**
+     * Method accepts data source and wrap it into instrumented proxy
+     *
+     * @param dataSource                        Data source
+     * @return                                  Instrumented data source
+     */
+    public static DataSource instrument(final DataSource dataSource) {
+        return isInstrumented(dataSource) ? dataSource : (DataSource) wrap(dataSource, DataSource.class, null);
+    }
+
+    private static boolean isInstrumented(final Object object) {
+        return Proxy.isProxyClass(object.getClass())
+                && Proxy.getInvocationHandler(object) instanceof JdbcHandler;
+    }
+
+    private static Object wrap(final Object target, final Class<?> type, final String sql) {
+        return Proxy.newProxyInstance(JdbcInstrumentation.class.getClassLoader(), new Class<?>[]{type},
+                new JdbcHandler(target, sql));
+    }
+
+    private static final class JdbcHandler implements InvocationHandler {
+
+        private final Object target;
+        private final String sql;
+
+        private JdbcHandler(final Object target, final String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+            }
+            boolean execution = target instanceof Statement && method.getName().startsWith("execute");
+            boolean fetch = target instanceof ResultSet && method.getName().equals("next");
+            long start = execution || fetch ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (execution) {
+                    JdbcCallStats.current().addStatement(sqlOf(args), System.nanoTime() - start);
+                }
+            }
+            if (fetch) {
+                JdbcCallStats.current().addFetch(System.nanoTime() - start, (Boolean) result);
+                return result;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result == null || isInstrumented(result)) {
+                return result;
+            }
+            if (returnType == Connection.class || returnType == Statement.class
+                    || returnType == PreparedStatement.class || returnType == CallableStatement.class
+                    || returnType == ResultSet.class) {
+                return wrap(result, returnType, target instanceof Connection ? sqlOf(args) : null);
+            }
+            return result;
+        }
+
+        /**
+         * Method return SQL of prepared statement or SQL passed to plain statement
+         */
+        private String sqlOf(final Object[] args) {
+            if (sql != null) {
+                return sql;
+            }
+            return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        }
+    }
+}
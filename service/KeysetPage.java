@@ -0,0 +1,48 @@
+package carshare.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of entities read with keyset (cursor) pagination
+ *
+ * @param <T>                                   Type of entity on page
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final UUID nextCursor;
+
+    public KeysetPage(final List<T> items, final UUID nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Method return entities of this page
+     *
+     * @return                                  List of entities
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Method return cursor which should be passed to get next page
+     *
+     * @return                                  UUID of last entity on page or null if it is the last page
+     */
+    public UUID getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Method check if there is one more page after this one
+     *
+     * @return                                  True if next page exists
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,179 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keyset pagination over entities with UUID primary key.
+ * Every page is read by "id > cursor order by id limit size" query,
+ * so memory used by one call depends only on page size and not on table size.
+ * With time-ordered UUIDs order of ids is order of creation, so newest first pages
+ * are read by "id < cursor order by id desc" range scan of primary key index.
+ */
+@Component
+public class KeysetPager {
+
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final String ID = "id";
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public KeysetPager(final EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Method return one page of entities which ids are greater than cursor
+     *
+     * @param type                              Entity class
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of entities on page
+     * @param idOf                              Function which return id of entity
+     * @return                                  Page of entities with cursor for the next page
+     */
+    public <T> KeysetPage<T> page(final Class<T> type, final UUID after, final int size,
+                                  final Function<T, UUID> idOf) {
+        return page(type, after, size, idOf, false);
+    }
+
+    /**
+     * Method return one page of entities which ids are less than cursor, in descending order of ids.
+     * For entities with time-ordered UUIDs it is page of newest entities.
+     *
+     * @param type                              Entity class
+     * @param before                            Cursor from previous page, null for first page
+     * @param size                              Max amount of entities on page
+     * @param idOf                              Function which return id of entity
+     * @return                                  Page of entities with cursor for the next page
+     */
+    public <T> KeysetPage<T> newestPage(final Class<T> type, final UUID before, final int size,
+                                        final Function<T, UUID> idOf) {
+        return page(type, before, size, idOf, true);
+    }
+
+    /**
+     * Method return one page of entity ids which are greater than cursor.
+     * Only ids are read, so page can be loaded later by ids with any fetch plan
+     * without applying row limit to joined rows.
+     *
+     * @param type                              Entity class
+     * @param after                             Cursor from previous page, null for first page
+     * @param size                              Max amount of ids on page
+     * @return                                  Page of ids with cursor for the next page
+     */
+    public <T> KeysetPage<UUID> idPage(final Class<T> type, final UUID after, final int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UUID> query = builder.createQuery(UUID.class);
+        Root<T> root = query.from(type);
+        if (after != null) {
+            query.where(builder.greaterThan(root.<UUID>get(ID), after));
+        }
+        query.select(root.<UUID>get(ID)).orderBy(builder.asc(root.get(ID)));
+        List<UUID> ids = entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+        if (ids.size() <= pageSize) {
+            return new KeysetPage<>(ids, null);
+        }
+        List<UUID> pageIds = ids.subList(0, pageSize);
+        return new KeysetPage<>(pageIds, pageIds.get(pageSize - 1));
+    }
+
+    private <T> KeysetPage<T> page(final Class<T> type, final UUID cursor, final int size,
+                                   final Function<T, UUID> idOf, final boolean descending) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<T> items = entityManager.createQuery(pageQuery(type, cursor, descending))
+                .setMaxResults(pageSize + 1)
+                .getResultList();
+        if (items.size() <= pageSize) {
+            return new KeysetPage<>(items, null);
+        }
+        List<T> pageItems = items.subList(0, pageSize);
+        return new KeysetPage<>(pageItems, idOf.apply(pageItems.get(pageSize - 1)));
+    }
+
+    /**
+     * Method return lazy stream of all entities which is read page by page.
+     * Entities of previous chunk are detached before next chunk is loaded,
+     * so stream can be used inside long transaction without growing persistence context.
+     *
+     * @param type                              Entity class
+     * @param chunkSize                         Amount of entities read by one query
+     * @param idOf                              Function which return id of entity
+     * @return                                  Stream of all entities ordered by id
+     */
+    public <T> Stream<T> stream(final Class<T> type, final int chunkSize, final Function<T, UUID> idOf) {
+        Iterator<T> iterator = new ChunkIterator<>(type, chunkSize, idOf);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    private <T> CriteriaQuery<T> pageQuery(final Class<T> type, final UUID cursor, final boolean descending) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(type);
+        Root<T> root = query.from(type);
+        if (cursor != null) {
+            query.where(descending
+                    ? builder.lessThan(root.<UUID>get(ID), cursor)
+                    : builder.greaterThan(root.<UUID>get(ID), cursor));
+        }
+        return query.select(root).orderBy(descending ? builder.desc(root.get(ID)) : builder.asc(root.get(ID)));
+    }
+
+    private class ChunkIterator<T> implements Iterator<T> {
+
+        private final Class<T> type;
+        private final int chunkSize;
+        private final Function<T, UUID> idOf;
+        private List<T> chunk = Collections.emptyList();
+        private int position;
+        private UUID cursor;
+        private boolean last;
+
+        ChunkIterator(final Class<T> type, final int chunkSize, final Function<T, UUID> idOf) {
+            this.type = type;
+            this.chunkSize = chunkSize;
+            this.idOf = idOf;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position < chunk.size()) {
+                return true;
+            }
+            if (last) {
+                return false;
+            }
+            chunk.forEach(entityManager::detach);
+            KeysetPage<T> page = page(type, cursor, chunkSize, idOf);
+            chunk = page.getItems();
+            position = 0;
+            cursor = page.getNextCursor();
+            last = !page.hasNext();
+            return !chunk.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.get(position++);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package carshare.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free recorder of operation count, total and max duration
+ */
+public class LatencyRecorder {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Method accepts duration of one operation and record it
+     *
+     * @param nanos                             Duration in nanoseconds
+     */
+    public void record(final long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Method return mean duration of recorded operations
+     *
+     * @return                                  Mean duration in milliseconds
+     */
+    public double getMeanMillis() {
+        long operations = count.sum();
+        return operations == 0 ? 0 : (double) totalNanos.sum() / operations / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,101 @@
+package carshare.service;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerGroup;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Marks JDBC work of lazy collection and proxy initialization on JdbcCallStats of calling thread.
+ * Hibernate listeners are wrapped, so the mark is set before loading and removed after it, even if loading fails.
+ * Mark costs one thread-local lookup per initialization, the stack of the lazy load is only walked
+ * by JdbcCallStats for statements which are kept by slow operation capture.
+ */
+@Component
+public class LazyLoadListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public LazyLoadListener(final EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Method wrap collection initialization and proxy load listeners of session factory
+     */
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        EventListenerGroup<InitializeCollectionEventListener> collections =
+                registry.getEventListenerGroup(EventType.INIT_COLLECTION);
+        List<InitializeCollectionEventListener> collectionListeners = new ArrayList<>();
+        collections.listeners().forEach(collectionListeners::add);
+        collections.clear();
+        collectionListeners.forEach(listener -> collections.appendListener(new CollectionListener(listener)));
+        EventListenerGroup<LoadEventListener> loads = registry.getEventListenerGroup(EventType.LOAD);
+        List<LoadEventListener> loadListeners = new ArrayList<>();
+        loads.listeners().forEach(loadListeners::add);
+        loads.clear();
+        loadListeners.forEach(listener -> loads.appendListener(new ProxyListener(listener)));
+    }
+
+    private static final class CollectionListener implements InitializeCollectionEventListener {
+
+        private final InitializeCollectionEventListener delegate;
+
+        private CollectionListener(final InitializeCollectionEventListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onInitializeCollection(final InitializeCollectionEvent event) throws HibernateException {
+            JdbcCallStats stats = JdbcCallStats.current();
+            stats.enterLazyLoad();
+            try {
+                delegate.onInitializeCollection(event);
+            } finally {
+                stats.exitLazyLoad();
+            }
+        }
+    }
+
+    /**
+     * Proxy initialization is the only load of type IMMEDIATE_LOAD, other loads are passed through unmarked
+     */
+    private static final class ProxyListener implements LoadEventListener {
+
+        private final LoadEventListener delegate;
+
+        private ProxyListener(final LoadEventListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onLoad(final LoadEvent event, final LoadType loadType) throws HibernateException {
+            if (loadType != LoadEventListener.IMMEDIATE_LOAD) {
+                delegate.onLoad(event, loadType);
+                return;
+            }
+            JdbcCallStats stats = JdbcCallStats.current();
+            stats.enterLazyLoad();
+            try {
+                delegate.onLoad(event, loadType);
+            } finally {
+                stats.exitLazyLoad();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package carshare.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of loading many entities by UUIDs
+ *
+ * @param <T>                                   Type of entity
+ */
+public class MultiGetResult<T> {
+
+    private final List<T> found;
+    private final List<UUID> missing;
+
+    public MultiGetResult(final List<T> found, final List<UUID> missing) {
+        this.found = Collections.unmodifiableList(found);
+        this.missing = Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * Method return found entities in order of requested UUIDs
+     *
+     * @return                                  List of found entities
+     */
+    public List<T> getFound() {
+        return found;
+    }
+
+    /**
+     * Method return requested UUIDs which were not found
+     *
+     * @return                                  List of missing UUIDs in requested order
+     */
+    public List<UUID> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,66 @@
+package carshare.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Incremental NDJSON reader which returns one record at a time as map of field name to value.
+ * Every line is parsed on its own, so invalid line fails only its record
+ * with IllegalArgumentException and reading continues from the next line. Empty lines are skipped.
+ */
+class NdjsonRecordReader implements Iterator<Map<String, Object>> {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private String nextLine;
+
+    NdjsonRecordReader(final BufferedReader reader, final ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+        this.nextLine = readLine();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextLine != null;
+    }
+
+    /**
+     * Method return next record
+     *
+     * @return                                  Record as map of field name to value
+     * @throws IllegalArgumentException         if line is not JSON object, line is consumed anyway
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> next() {
+        if (nextLine == null) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = readLine();
+        try {
+            return objectMapper.readValue(line, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON record: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private String readLine() {
+        try {
+            String line = reader.readLine();
+            while (line != null && line.trim().isEmpty()) {
+                line = reader.readLine();
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt work factor tuned to target hash time on current hardware.
+ * Cost is calibrated at startup, new passwords are hashed with calibrated cost
+ * and stored hashes with lower cost are reported as ones which need rehash.
+ * Cost of application password encoder is the floor, so slow or noisy startup never lowers it,
+ * and stored hashes are only rehashed upward, so restarts which calibrate differently do not flip them.
+ * Calibration works only when application password encoder is BCrypt,
+ * otherwise application password encoder is used as is.
+ */
+@Component
+public class PasswordCostPolicy {
+
+    private static final int MAX_COST = 16;
+    private static final int PROBE_COST = 8;
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int PROBE_ROUNDS = 5;
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final boolean enabled;
+    private final int targetCost;
+    private final PasswordEncoder calibratedEncoder;
+    private final LatencyRecorder encodeTimings = new LatencyRecorder();
+    private final LatencyRecorder verifyTimings = new LatencyRecorder();
+    private volatile String userNotFoundPassword;
+
+    @Autowired
+    public PasswordCostPolicy(
+            final PasswordEncoder passwordEncoder,
+            @Value("${carshare.hashing.calibrate:true}") final boolean calibrate,
+            @Value("${carshare.hashing.target-time:50ms}") final Duration targetTime
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        this.enabled = calibrate && passwordEncoder instanceof BCryptPasswordEncoder;
+        this.targetCost = enabled ? calibrate(costOf(passwordEncoder.encode("calibration")), targetTime) : 0;
+        this.calibratedEncoder = enabled ? new BCryptPasswordEncoder(targetCost) : passwordEncoder;
+    }
+
+    /**
+     * Method accepts raw password and encode it with calibrated cost
+     *
+     * @param rawPassword                       Raw password
+     * @return                                  Encoded password
+     */
+    public String encode(final CharSequence rawPassword) {
+        long start = System.nanoTime();
+        try {
+            return calibratedEncoder.encode(rawPassword);
+        } finally {
+            encodeTimings.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Method check if stored hash was made with cost lower than calibrated one
+     *
+     * @param encodedPassword                   Stored password hash
+     * @return                                  True if password should be hashed again
+     */
+    public boolean needsRehash(final String encodedPassword) {
+        if (!enabled || encodedPassword == null) {
+            return false;
+        }
+        int cost = costOf(encodedPassword);
+        return cost > 0 && cost < targetCost;
+    }
+
+    /**
+     * Method check raw password against stored hash and record duration of check.
+     * When user is not found password is checked against dummy hash,
+     * so response time does not tell if login exists.
+     *
+     * @param rawPassword                       Raw password from login request
+     * @param encodedPassword                   Stored password hash, null if user not found
+     * @return                                  True if password matches stored hash
+     */
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        long start = System.nanoTime();
+        try {
+            if (encodedPassword == null) {
+                if (userNotFoundPassword == null) {
+                    userNotFoundPassword = passwordEncoder.encode("userNotFoundPassword");
+                }
+                passwordEncoder.matches(rawPassword, userNotFoundPassword);
+                return false;
+            }
+            return passwordEncoder.matches(rawPassword, encodedPassword);
+        } finally {
+            verifyTimings.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Method return calibrated BCrypt cost
+     *
+     * @return                                  BCrypt cost or 0 if calibration is disabled
+     */
+    public int getTargetCost() {
+        return targetCost;
+    }
+
+    public LatencyRecorder getEncodeTimings() {
+        return encodeTimings;
+    }
+
+    public LatencyRecorder getVerifyTimings() {
+        return verifyTimings;
+    }
+
+    /**
+     * Method return cost of BCrypt hash, or 0 if hash is not BCrypt
+     */
+    private static int costOf(final String encodedPassword) {
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Method time probe hashes after warm-up, so cold JIT does not make hashing look slower than it is
+     *
+     * @param minCost                           Cost of application password encoder
+     * @param targetTime                        Target time of one hash
+     * @return                                  Calibrated cost, not lower than min cost
+     */
+    private static int calibrate(final int minCost, final Duration targetTime) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(PROBE_COST);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            probe.encode("calibration");
+        }
+        long[] samples = new long[PROBE_ROUNDS];
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long probeNanos = Math.max(1, samples[PROBE_ROUNDS / 2]);
+        // every next cost doubles hashing time
+        double doublings = Math.log((double) targetTime.toNanos() / probeNanos) / Math.log(2);
+        int cost = PROBE_COST + (int) Math.round(doublings);
+        return Math.max(minCost, Math.min(MAX_COST, cost));
+    }
+}
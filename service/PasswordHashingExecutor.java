@@ -0,0 +1,147 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead for CPU heavy password hashing.
+ * Hashing runs on dedicated bounded pool with bounded queue, when queue is full
+ * new tasks are rejected right away, so hashing bursts can not take all request threads.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final PasswordCostPolicy passwordCostPolicy;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public PasswordHashingExecutor(
+            final PasswordCostPolicy passwordCostPolicy,
+            @Value("${carshare.hashing.threads:0}") final int threads,
+            @Value("${carshare.hashing.queue-size:64}") final int queueSize
+    ) {
+        this.passwordCostPolicy = passwordCostPolicy;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Method accepts raw password and encode it on hashing pool
+     *
+     * @param rawPassword                       Raw password
+     * @return                                  Future with encoded password
+     */
+    public CompletableFuture<String> encodeAsync(final CharSequence rawPassword) {
+        return submit(() -> passwordCostPolicy.encode(rawPassword));
+    }
+
+    /**
+     * Method accepts raw password, encode it on hashing pool and wait for result
+     *
+     * @param rawPassword                       Raw password
+     * @return                                  Encoded password
+     * @throws RejectedExecutionException       if hashing queue is full
+     */
+    public String encode(final CharSequence rawPassword) {
+        return call(() -> passwordCostPolicy.encode(rawPassword));
+    }
+
+    /**
+     * Method accepts many raw passwords and encode them in parallel on hashing pool.
+     * Passwords are submitted by windows of pool size, so bulk hashing does not fill the queue,
+     * password which is rejected by full queue is encoded on caller thread.
+     * Method is intended for background jobs, not for request threads.
+     *
+     * @param rawPasswords                      Raw passwords
+     * @return                                  Encoded passwords in the same order, null for null password
+     */
+    public List<String> encodeAll(final List<? extends CharSequence> rawPasswords) {
+        List<String> encodedPasswords = new ArrayList<>(rawPasswords.size());
+        int window = executor.getMaximumPoolSize();
+        for (int from = 0; from < rawPasswords.size(); from += window) {
+            List<CompletableFuture<String>> futures = new ArrayList<>(window);
+            for (CharSequence rawPassword : rawPasswords.subList(from, Math.min(rawPasswords.size(), from + window))) {
+                futures.add(rawPassword == null
+                        ? CompletableFuture.completedFuture(null)
+                        : encodeAsync(rawPassword).exceptionally(e -> passwordCostPolicy.encode(rawPassword)));
+            }
+            futures.forEach(future -> encodedPasswords.add(future.join()));
+        }
+        return encodedPasswords;
+    }
+
+    /**
+     * Method accepts hashing task and run it on hashing pool
+     *
+     * @param task                              Task which does password hashing
+     * @return                                  Future with result of task, failed if queue is full
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * Method accepts hashing task, run it on hashing pool and wait for result
+     *
+     * @param task                              Task which does password hashing
+     * @return                                  Result of task
+     * @throws RejectedExecutionException       if hashing queue is full
+     */
+    public <T> T call(final Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Method return amount of hashing tasks which wait in queue
+     *
+     * @return                                  Queue depth
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package carshare.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting, enabled when replica URLs are configured.
+ * Primary is built from spring.datasource properties, replicas use the same driver and, by default, credentials.
+ * For local run two embedded databases can stand in, for example
+ * spring.datasource.url=jdbc:h2:mem:primary and carshare.datasource.replica-urls=jdbc:h2:mem:replica.
+ * <p>
+ * Target is chosen when Hibernate takes physical connection, so Hibernate must give it back after every
+ * transaction. With the default DELAYED_ACQUISITION_AND_HOLD and spring.jpa.open-in-view, the session of request
+ * keeps connection of its first transaction, and write after read-only transaction would go to replica.
+ * Release after transaction is set here, other handling mode in properties fails startup.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "carshare.datasource", name = "replica-urls")
+public class ReplicaDataSourceConfiguration {
+
+    private static final String CONNECTION_HANDLING = "hibernate.connection.handling_mode";
+    private static final String RELEASE_AFTER_TRANSACTION = "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION";
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            final DataSourceProperties properties,
+            @Value("${carshare.datasource.replica-urls}") final String[] replicaUrls,
+            @Value("${carshare.datasource.replica-username:${spring.datasource.username:}}") final String username,
+            @Value("${carshare.datasource.replica-password:${spring.datasource.password:}}") final String password,
+            @Value("${carshare.datasource.staleness-window:5s}") final Duration stalenessWindow,
+            @Value("${carshare.datasource.replica-retry-after:30s}") final Duration retryAfter
+    ) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            replicas.add(DataSourceBuilder.create()
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build());
+        }
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicas, stalenessWindow, retryAfter));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return properties -> {
+            Object mode = properties.putIfAbsent(CONNECTION_HANDLING, RELEASE_AFTER_TRANSACTION);
+            if (mode != null && !RELEASE_AFTER_TRANSACTION.equals(mode.toString())) {
+                throw new IllegalStateException("Replicas require " + CONNECTION_HANDLING + "="
+                        + RELEASE_AFTER_TRANSACTION + ", but it is " + mode + ".");
+            }
+        };
+    }
+}
@@ -0,0 +1,179 @@
+package carshare.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Data source which sends read-only transactions to replicas and everything else to primary.
+ * Replicas are taken round robin, replica which fails to give connection is skipped for retry interval
+ * and connection is taken from the next replica or from primary, so reads survive loss of all replicas.
+ * Pools report failed start with unchecked exception, so it is a failed connection too.
+ * Read-your-writes: after user writes to primary, reads of this user go to primary during staleness window,
+ * so data written by create is visible to getById even if replica is behind.
+ * It covers authenticated users only, user is identified by authentication name.
+ * Anonymous writes are not tracked: thread of servlet pool serves unrelated callers one after another,
+ * so thread is not an identity, and anonymous reads right after anonymous write may miss it.
+ * Must be wrapped into LazyConnectionDataSourceProxy, so connection is taken when read-only flag is already set,
+ * and Hibernate must release connection after every transaction, see ReplicaDataSourceConfiguration.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final int MAX_TRACKED_WRITERS = 100000;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long retryAfterNanos;
+    private final BoundedTtlCache<String, Boolean> recentWriters;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLongArray downUntilNanos;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder stalenessReads = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    /**
+     * @param primary                           Primary data source for writes
+     * @param replicas                          Replica data sources for read-only transactions
+     * @param stalenessWindow                   Time after write when reads of the same user go to primary,
+     *                                          zero disables read-your-writes
+     * @param retryAfter                        Time for which failed replica is skipped
+     */
+    public ReplicaRoutingDataSource(final DataSource primary, final List<DataSource> replicas,
+                                    final Duration stalenessWindow, final Duration retryAfter) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.recentWriters = stalenessWindow.isZero() || stalenessWindow.isNegative()
+                ? null : new BoundedTtlCache<>(MAX_TRACKED_WRITERS, stalenessWindow);
+        this.downUntilNanos = new AtomicLongArray(replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(null, null);
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return connect(username, password);
+    }
+
+    /**
+     * Method return target of current transaction: primary or index of healthy replica
+     *
+     * @return                                  Lookup key of target data source
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String writer = recentWriters == null ? null : writerKey();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (writer != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(writer, Boolean.TRUE);
+            }
+            return PRIMARY;
+        }
+        if (writer != null && recentWriters.get(writer) != null) {
+            stalenessReads.increment();
+            return PRIMARY;
+        }
+        return healthyReplica();
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * Method return amount of read-only transactions sent to primary because user wrote recently
+     *
+     * @return                                  Amount of reads on primary
+     */
+    public long getStalenessReads() {
+        return stalenessReads.sum();
+    }
+
+    /**
+     * Method return amount of replica connections which failed and were replaced
+     *
+     * @return                                  Amount of failovers
+     */
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    private Connection connect(final String username, final String password) throws SQLException {
+        Object key = determineCurrentLookupKey();
+        while (key instanceof Integer) {
+            int replica = (Integer) key;
+            try {
+                Connection connection = connection(replicas.get(replica), username, password);
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                failovers.increment();
+                downUntilNanos.set(replica, System.nanoTime() + retryAfterNanos);
+                LOGGER.warn("Replica {} is unavailable, it is skipped for {} ms", replica,
+                        retryAfterNanos / 1000000, e);
+                key = healthyReplica();
+            }
+        }
+        return connection(primary, username, password);
+    }
+
+    private Object healthyReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return PRIMARY;
+        }
+        long now = System.nanoTime();
+        for (int attempt = 0; attempt < size; attempt++) {
+            int replica = Math.floorMod(nextReplica.getAndIncrement(), size);
+            if (now - downUntilNanos.get(replica) >= 0) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private static Connection connection(final DataSource dataSource, final String username,
+                                         final String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+
+    /**
+     * Method return name of authenticated user, or null if caller is anonymous
+     */
+    private static String writerKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
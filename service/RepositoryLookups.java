@@ -0,0 +1,144 @@
+package carshare.service;
+
+import org.springframework.data.repository.CrudRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared lookup and mutation helpers for services.
+ * Existence is checked by the same query which loads the entity, so update and delete
+ * reuse entity from persistence context instead of asking database again.
+ */
+final class RepositoryLookups {
+
+    static final int IN_CHUNK_SIZE = 1000;
+
+    private RepositoryLookups() {
+    }
+
+    /**
+     * Method load entity by UUID or throw exception if it not exists
+     *
+     * @param repository                        Repository of entity
+     * @param id                                UUID of entity
+     * @param notFound                          Supplier of exception for missing entity
+     * @return                                  Found entity
+     */
+    static <T, X extends Exception> T findOrThrow(final CrudRepository<T, UUID> repository,
+                                                  final UUID id,
+                                                  final Supplier<X> notFound) throws X {
+        return repository.findById(id).orElseThrow(notFound);
+    }
+
+    /**
+     * Method load entity by UUID or return null if it not exists
+     *
+     * @param repository                        Repository of entity
+     * @param id                                UUID of entity
+     * @return                                  Found entity or null
+     */
+    static <T> T findOrNull(final CrudRepository<T, UUID> repository, final UUID id) {
+        return repository.findById(id).orElse(null);
+    }
+
+    /**
+     * Method save changed entity if entity with same UUID exists, otherwise throw exception
+     *
+     * @param repository                        Repository of entity
+     * @param id                                UUID of entity
+     * @param entity                            Changed entity data
+     * @param notFound                          Supplier of exception for missing entity
+     * @return                                  Saved entity
+     */
+    static <T, X extends Exception> T updateOrThrow(final CrudRepository<T, UUID> repository,
+                                                    final UUID id,
+                                                    final T entity,
+                                                    final Supplier<X> notFound) throws X {
+        findOrThrow(repository, id, notFound);
+        return repository.save(entity);
+    }
+
+    /**
+     * Method save changed entity if entity with same UUID exists, otherwise return null
+     *
+     * @param repository                        Repository of entity
+     * @param id                                UUID of entity
+     * @param entity                            Changed entity data
+     * @return                                  Saved entity or null
+     */
+    static <T> T updateOrNull(final CrudRepository<T, UUID> repository, final UUID id, final T entity) {
+        if (findOrNull(repository, id) == null) {
+            return null;
+        }
+        return repository.save(entity);
+    }
+
+    /**
+     * Method delete entity by UUID or throw exception if it not exists
+     *
+     * @param repository                        Repository of entity
+     * @param id                                UUID of entity
+     * @param notFound                          Supplier of exception for missing entity
+     * @return                                  UUID of deleted entity
+     */
+    static <T, X extends Exception> UUID deleteOrThrow(final CrudRepository<T, UUID> repository,
+                                                       final UUID id,
+                                                       final Supplier<X> notFound) throws X {
+        repository.delete(findOrThrow(repository, id, notFound));
+        return id;
+    }
+
+    /**
+     * Method delete entity by UUID or return null if it not exists
+     *
+     * @param repository                        Repository of entity
+     * @param id                                UUID of entity
+     * @return                                  UUID of deleted entity or null
+     */
+    static <T> UUID deleteOrNull(final CrudRepository<T, UUID> repository, final UUID id) {
+        T entity = findOrNull(repository, id);
+        if (entity == null) {
+            return null;
+        }
+        repository.delete(entity);
+        return id;
+    }
+
+    /**
+     * Method load many entities by UUIDs with chunked "in" queries
+     *
+     * @param repository                        Repository of entity
+     * @param ids                               UUIDs of entities, duplicates are loaded once
+     * @param idOf                              Function which return id of entity
+     * @return                                  Found entities in order of UUIDs and missing UUIDs
+     */
+    static <T> MultiGetResult<T> findAllOrdered(final CrudRepository<T, UUID> repository,
+                                                final Collection<UUID> ids,
+                                                final Function<T, UUID> idOf) {
+        List<UUID> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        uniqueIds.remove(null);
+        Map<UUID, T> loaded = new HashMap<>();
+        for (int from = 0; from < uniqueIds.size(); from += IN_CHUNK_SIZE) {
+            List<UUID> chunk = uniqueIds.subList(from, Math.min(uniqueIds.size(), from + IN_CHUNK_SIZE));
+            repository.findAllById(chunk).forEach(entity -> loaded.put(idOf.apply(entity), entity));
+        }
+        List<T> found = new ArrayList<>(loaded.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : uniqueIds) {
+            T entity = loaded.get(id);
+            if (entity == null) {
+                missing.add(id);
+            } else {
+                found.add(entity);
+            }
+        }
+        return new MultiGetResult<>(found, missing);
+    }
+}
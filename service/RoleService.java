@@ -4,13 +4,21 @@ import carshare.advice.exception.RoleNotFoundException;
 import carshare.database.entity.Role;
 import carshare.database.repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Service for role management
@@ -18,11 +26,33 @@ import java.util.UUID;
 @Service
 public class RoleService {
 
+    public static final String ADMIN = "ADMIN";
+
     private final RoleRepository roleRepository;
+    private final KeysetPager keysetPager;
+    private volatile Map<String, Set<Role>> rolesByName = Collections.emptyMap();
+    private long reloads;
 
     @Autowired
-    public RoleService(final RoleRepository roleRepository) {
+    public RoleService(final RoleRepository roleRepository, final KeysetPager keysetPager) {
         this.roleRepository = roleRepository;
+        this.keysetPager = keysetPager;
+    }
+
+    /**
+     * Method load all roles from database to in-memory cache.
+     * Roles table almost never changes, so cache is replaced as a whole (copy on write)
+     * when roles are created, updated or deleted.
+     * Cache is replaced under lock, so lazy insert of unknown role can not overwrite it.
+     */
+    @PostConstruct
+    public synchronized void reloadRoles() {
+        Map<String, Set<Role>> loadedRoles = new HashMap<>();
+        roleRepository.findAll().forEach(role ->
+                loadedRoles.computeIfAbsent(role.getName(), name -> new HashSet<>()).add(role)
+        );
+        rolesByName = Collections.unmodifiableMap(loadedRoles);
+        reloads++;
     }
 
     /**
@@ -35,7 +65,9 @@ public class RoleService {
         if (role == null) {
             return null;
         }
-        return roleRepository.save(role);
+        Role createdRole = roleRepository.save(role);
+        TransactionHooks.afterCommit(this::reloadRoles);
+        return createdRole;
     }
 
     /**
@@ -45,11 +77,21 @@ public class RoleService {
      * @return                                      Role data
      * @throws RoleNotFoundException                if role not found
      */
+    @Transactional(readOnly = true)
     public Role getById(final UUID roleId) throws RoleNotFoundException {
-        if (!roleRepository.existsById(roleId)){
-            throw new RoleNotFoundException("Role not exists.");
-        }
-        return roleRepository.findById(roleId).orElse(new Role());
+        return RepositoryLookups.findOrThrow(roleRepository, roleId,
+                () -> new RoleNotFoundException("Role not exists."));
+    }
+
+    /**
+     * Method accepts UUIDs of roles and return all of them with few "in" queries
+     *
+     * @param roleIds                               UUIDs of roles
+     * @return                                      Found roles in order of UUIDs and missing UUIDs
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<Role> getByIds(final Collection<UUID> roleIds) {
+        return RepositoryLookups.findAllOrdered(roleRepository, roleIds, Role::getId);
     }
 
     /**
@@ -57,17 +99,87 @@ public class RoleService {
      *
      * @return                                      List of all roles
      */
+    @Transactional(readOnly = true)
     public List<Role> getAll(){
         return new ArrayList<>((Collection<? extends Role>) roleRepository.findAll());
     }
 
     /**
-     * Method accepts role name and return role with data
+     * Method return one page of roles ordered by UUID, started after given cursor
+     *
+     * @param after                                 Cursor from previous page, null for first page
+     * @param size                                  Max amount of roles on page
+     * @return                                      Page of roles with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Role> getPage(final UUID after, final int size) {
+        return keysetPager.page(Role.class, after, size, Role::getId);
+    }
+
+    /**
+     * Method return lazy stream of all roles, which is read from database by chunks,
+     * so memory used by one call does not depend on amount of roles
+     *
+     * @param chunkSize                             Amount of roles read by one query
+     * @return                                      Stream of all roles
+     */
+    public Stream<Role> stream(final int chunkSize) {
+        return keysetPager.stream(Role.class, chunkSize, Role::getId);
+    }
+
+    /**
+     * Method accepts role name and return role with data.
+     * Roles are taken from in-memory cache, database is asked only for unknown role name.
+     * Role read from database is not cached if roles were reloaded while it was read.
      *
      * @param name                                  Name of role
      */
     public Set<Role> getRole(String name){
-        return roleRepository.getByName(name);
+        Set<Role> roles = rolesByName.get(name);
+        if (roles == null) {
+            long reloadsBeforeRead;
+            synchronized (this) {
+                reloadsBeforeRead = reloads;
+            }
+            roles = roleRepository.getByName(name);
+            if (roles != null && !roles.isEmpty()) {
+                cacheRole(name, roles, reloadsBeforeRead);
+            }
+            return roles;
+        }
+        return new HashSet<>(roles);
+    }
+
+    private synchronized void cacheRole(final String name, final Set<Role> roles, final long reloadsBeforeRead) {
+        if (reloads == reloadsBeforeRead) {
+            Map<String, Set<Role>> updatedRoles = new HashMap<>(rolesByName);
+            updatedRoles.put(name, new HashSet<>(roles));
+            rolesByName = Collections.unmodifiableMap(updatedRoles);
+        }
+    }
+
+    /**
+     * Method check if authenticated user has role.
+     * Role must exist, authority is matched by role name with or without "ROLE_" prefix.
+     *
+     * @param authentication                        Authentication of current user, null if user is anonymous
+     * @param name                                  Name of role
+     * @return                                      True if user has role
+     */
+    public boolean hasRole(final Authentication authentication, final String name) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        Set<Role> roles = getRole(name);
+        if (roles == null || roles.isEmpty()) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (name.equals(authority.getAuthority()) || ("ROLE_" + name).equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -77,10 +189,10 @@ public class RoleService {
      */
     @Transactional
     public Role update(final Role role) throws RoleNotFoundException {
-        if (!roleRepository.existsById(role.getId())){
-            throw new RoleNotFoundException("Role not exists.");
-        }
-       return roleRepository.save(role);
+        Role updatedRole = RepositoryLookups.updateOrThrow(roleRepository, role.getId(), role,
+                () -> new RoleNotFoundException("Role not exists."));
+        TransactionHooks.afterCommit(this::reloadRoles);
+        return updatedRole;
     }
 
     /**
@@ -91,10 +203,9 @@ public class RoleService {
      */
     @Transactional
     public UUID delete(final UUID roleId) throws RoleNotFoundException {
-        if (!roleRepository.existsById(roleId)){
-            throw new RoleNotFoundException("Role not exists.");
-        }
-        roleRepository.deleteById(roleId);
-        return roleId;
+        UUID deletedRoleId = RepositoryLookups.deleteOrThrow(roleRepository, roleId,
+                () -> new RoleNotFoundException("Role not exists."));
+        TransactionHooks.afterCommit(this::reloadRoles);
+        return deletedRoleId;
     }
 }
@@ -0,0 +1,133 @@
+package carshare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms and JDBC counters of every public method of carshare services.
+ * Duration of call is split into time spent in JDBC driver and in-process time,
+ * statements and rows are taken from JdbcCallStats of calling thread, failures are counted by exception type.
+ * Meters of method are created once and cached, so measured call costs two clock reads and map lookup.
+ * Methods which return future are measured until future is returned,
+ * JDBC work which they or other methods hand over to pool threads is not counted.
+ * Statements and rows are published with fixed buckets, so every method adds only a few series.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private static final double[] STATEMENT_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 500};
+    private static final double[] ROW_BUCKETS = {1, 10, 100, 1000, 10000, 100000};
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistogram;
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ServiceMetricsAspect(
+            final MeterRegistry meterRegistry,
+            @Value("${carshare.metrics.percentile-histogram:true}") final boolean percentileHistogram
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    /**
+     * Method measure one call of service method
+     *
+     * @param joinPoint                         Called service method
+     * @return                                  Result of method
+     * @throws Throwable                        exception of method, it is counted and rethrown
+     */
+    @Around("execution(public * carshare.service.*Service.*(..))")
+    public Object measure(final ProceedingJoinPoint joinPoint) throws Throwable {
+        JdbcCallStats stats = JdbcCallStats.current();
+        long dbNanos = stats.getNanos();
+        long statements = stats.getStatements();
+        long rows = stats.getRows();
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long db = stats.getNanos() - dbNanos;
+            MethodMeters methodMeters = meters(joinPoint);
+            methodMeters.total.record(elapsed, TimeUnit.NANOSECONDS);
+            methodMeters.db.record(db, TimeUnit.NANOSECONDS);
+            methodMeters.inProcess.record(Math.max(0, elapsed - db), TimeUnit.NANOSECONDS);
+            methodMeters.statements.record(stats.getStatements() - statements);
+            methodMeters.rows.record(stats.getRows() - rows);
+            if (failure != null) {
+                methodMeters.errors(failure).increment();
+            }
+        }
+    }
+
+    private MethodMeters meters(final ProceedingJoinPoint joinPoint) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        return meters.computeIfAbsent(signature.getMethod(), method -> new MethodMeters(
+                joinPoint.getTarget().getClass().getSimpleName(), method.getName()));
+    }
+
+    private final class MethodMeters {
+
+        private final String service;
+        private final String method;
+        private final Timer total;
+        private final Timer db;
+        private final Timer inProcess;
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+        private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+        private MethodMeters(final String service, final String method) {
+            this.service = service;
+            this.method = method;
+            this.total = timer("carshare.service.duration", "Duration of service method");
+            this.db = timer("carshare.service.db.duration", "Time of service method spent in JDBC");
+            this.inProcess = timer("carshare.service.app.duration", "Time of service method spent outside JDBC");
+            this.statements = summary("carshare.service.statements", "SQL statements per call", STATEMENT_BUCKETS);
+            this.rows = summary("carshare.service.rows", "Rows fetched per call", ROW_BUCKETS);
+        }
+
+        private Timer timer(final String name, final String description) {
+            return Timer.builder(name)
+                    .description(description)
+                    .tags("service", service, "method", method)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry);
+        }
+
+        private DistributionSummary summary(final String name, final String description, final double[] buckets) {
+            return DistributionSummary.builder(name)
+                    .description(description)
+                    .tags("service", service, "method", method)
+                    .serviceLevelObjectives(percentileHistogram ? buckets : new double[0])
+                    .register(meterRegistry);
+        }
+
+        private Counter errors(final Throwable failure) {
+            return errors.computeIfAbsent(failure.getClass(), type -> Counter.builder("carshare.service.errors")
+                    .description("Failed calls of service method")
+                    .tags("service", service, "method", method, "exception", type.getSimpleName())
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package carshare.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local log file of slow operations written by one background thread.
+ * Callers only offer line to bounded queue, line is dropped and counted if queue is full,
+ * so slow disk never slows down service calls.
+ * File is rotated by size: log, log.1, ..., log.N, the oldest file is deleted.
+ */
+class SlowOperationLog implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowOperationLog.class);
+
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final BlockingQueue<String> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    SlowOperationLog(final Path file, final long maxFileSize, final int maxFiles, final int queueSize) {
+        this.file = file.toAbsolutePath();
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.writerThread = new Thread(this::writeLoop, "slow-operation-log");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Method accepts line and queue it for writing
+     *
+     * @param line                              Line without line separator
+     * @return                                  False if queue is full and line is dropped
+     */
+    boolean offer(final String line) {
+        if (queue.offer(line)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Method write queued lines and stop writer thread
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void writeLoop() {
+        Writer writer = null;
+        long size = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                String line = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (line == null) {
+                    if (writer != null) {
+                        writer.flush();
+                    }
+                    continue;
+                }
+                if (writer == null) {
+                    Files.createDirectories(file.getParent());
+                    size = Files.exists(file) ? Files.size(file) : 0;
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                writer.write(line);
+                writer.write('\n');
+                size += line.length() + 1;
+                if (size >= maxFileSize) {
+                    writer.close();
+                    writer = null;
+                    rotate();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                LOGGER.warn("Slow operation log {} is not written", file, e);
+                writer = closeQuietly(writer);
+            }
+        }
+        closeQuietly(writer);
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(rotated(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated(final int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private static Writer closeQuietly(final Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.warn("Slow operation log is not closed", e);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package carshare.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.Temporal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records individual service calls which take longer than threshold, with everything needed to find the cause:
+ * method, sanitized arguments, SQL statements with their time and, if carshare.slow-operations.detect-lazy-loads
+ * is enabled, lazy loads which issued them.
+ * Only the outermost service call on thread is recorded, nested calls are part of its statements.
+ * Records are JSON lines written by background thread to rotating local file.
+ * <p>
+ * Arguments never include secrets: strings of parameters named like password, secret or token are masked,
+ * strings of unknown parameters are masked too, entities are written as type and id,
+ * because their toString could load lazy associations or print password hash.
+ */
+@Aspect
+@Component
+public class SlowOperationRecorder {
+
+    private static final String MASK = "***";
+    private static final int MAX_STRING_LENGTH = 100;
+    private static final String[] SECRET_NAMES = {"password", "secret", "token"};
+
+    private final long thresholdNanos;
+    private final int maxStatements;
+    private final boolean detectLazyLoads;
+    private final SlowOperationLog log;
+
+    @Autowired
+    public SlowOperationRecorder(
+            @Value("${carshare.slow-operations.threshold:500ms}") final Duration threshold,
+            @Value("${carshare.slow-operations.max-statements:50}") final int maxStatements,
+            @Value("${carshare.slow-operations.detect-lazy-loads:false}") final boolean detectLazyLoads,
+            @Value("${carshare.slow-operations.file:logs/slow-operations.log}") final String file,
+            @Value("${carshare.slow-operations.max-file-size:10MB}") final DataSize maxFileSize,
+            @Value("${carshare.slow-operations.max-files:5}") final int maxFiles,
+            @Value("${carshare.slow-operations.queue-size:1000}") final int queueSize
+    ) {
+        this.thresholdNanos = threshold.toNanos();
+        this.maxStatements = maxStatements;
+        this.detectLazyLoads = detectLazyLoads;
+        this.log = new SlowOperationLog(Paths.get(file), maxFileSize.toBytes(), maxFiles, queueSize);
+    }
+
+    /**
+     * Method run service method and record it if it is slower than threshold
+     *
+     * @param joinPoint                         Called service method
+     * @return                                  Result of method
+     * @throws Throwable                        exception of method
+     */
+    @Around("execution(public * carshare.service.*Service.*(..))")
+    public Object record(final ProceedingJoinPoint joinPoint) throws Throwable {
+        JdbcCallStats stats = JdbcCallStats.current();
+        if (!stats.startCapture(maxStatements, detectLazyLoads)) {
+            return joinPoint.proceed();
+        }
+        long dbNanos = stats.getNanos();
+        long rows = stats.getRows();
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            List<JdbcCallStats.CapturedStatement> statements = stats.stopCapture();
+            if (elapsed >= thresholdNanos) {
+                log.offer(entry(joinPoint, elapsed, stats.getNanos() - dbNanos, stats.getRows() - rows,
+                        statements, stats.getSkipped(), failure));
+            }
+        }
+    }
+
+    /**
+     * Method return amount of slow operations which were not written because log queue was full
+     *
+     * @return                                  Amount of dropped records
+     */
+    public long getDropped() {
+        return log.getDropped();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        log.close();
+    }
+
+    private String entry(final ProceedingJoinPoint joinPoint, final long elapsed, final long dbNanos,
+                         final long rows, final List<JdbcCallStats.CapturedStatement> statements,
+                         final int skipped, final Throwable failure) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        StringBuilder entry = new StringBuilder(256);
+        entry.append("{\"time\":\"").append(Instant.now())
+                .append("\",\"method\":\"").append(joinPoint.getTarget().getClass().getSimpleName())
+                .append('.').append(method.getName())
+                .append("\",\"durationMs\":").append(millis(elapsed))
+                .append(",\"dbMs\":").append(millis(dbNanos))
+                .append(",\"rows\":").append(rows);
+        if (failure != null) {
+            entry.append(",\"exception\":");
+            quote(entry, failure.getClass().getName());
+        }
+        entry.append(",\"args\":[");
+        String[] names = ((MethodSignature) joinPoint.getSignature()).getParameterNames();
+        Object[] args = joinPoint.getArgs();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                entry.append(',');
+            }
+            quote(entry, sanitize(names == null ? null : names[i], args[i]));
+        }
+        entry.append("],\"statements\":[");
+        for (int i = 0; i < statements.size(); i++) {
+            JdbcCallStats.CapturedStatement statement = statements.get(i);
+            entry.append(i > 0 ? ",{" : "{").append("\"ms\":").append(millis(statement.getNanos()))
+                    .append(",\"sql\":");
+            quote(entry, statement.getSql());
+            if (statement.getLazyLoadOrigin() != null) {
+                entry.append(",\"lazyLoad\":");
+                quote(entry, statement.getLazyLoadOrigin());
+            }
+            entry.append('}');
+        }
+        return entry.append("],\"skippedStatements\":").append(skipped).append('}').toString();
+    }
+
+    /**
+     * Method return safe text of argument
+     *
+     * @param name                              Name of parameter, null if it is unknown
+     * @param value                             Value of argument
+     * @return                                  Text which does not contain secrets or lazy data
+     */
+    static String sanitize(final String name, final Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence) {
+            if (name == null || isSecret(name)) {
+                return MASK;
+            }
+            String text = value.toString();
+            return text.length() > MAX_STRING_LENGTH ? text.substring(0, MAX_STRING_LENGTH) + "..." : text;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof UUID
+                || value instanceof Enum || value instanceof Temporal || value instanceof Duration) {
+            return value.toString();
+        }
+        if (value instanceof Collection) {
+            return value.getClass().getSimpleName() + "[" + ((Collection<?>) value).size() + "]";
+        }
+        if (value instanceof Map) {
+            return value.getClass().getSimpleName() + "[" + ((Map<?, ?>) value).size() + "]";
+        }
+        if (value instanceof InputStream || value.getClass().isArray()) {
+            return value.getClass().getSimpleName();
+        }
+        return value.getClass().getSimpleName() + idOf(value);
+    }
+
+    private static boolean isSecret(final String name) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        for (String secret : SECRET_NAMES) {
+            if (lowerCase.contains(secret)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String idOf(final Object value) {
+        try {
+            Object id = value.getClass().getMethod("getId").invoke(value);
+            return id == null ? "" : "#" + id;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return "";
+        }
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", (double) nanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static void quote(final StringBuilder entry, final String text) {
+        if (text == null) {
+            entry.append("null");
+            return;
+        }
+        entry.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                entry.append('\\').append(c);
+            } else if (c < 0x20) {
+                entry.append(String.format("\\u%04x", (int) c));
+            } else {
+                entry.append(c);
+            }
+        }
+        entry.append('"');
+    }
+}
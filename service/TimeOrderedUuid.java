@@ -0,0 +1,74 @@
+package carshare.service;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time-ordered UUIDs, version 7.
+ * The highest 48 bits are unix time in milliseconds, next 12 bits are counter inside millisecond
+ * and the rest is random, so ids created later are greater and new rows are appended
+ * to the end of primary key index instead of random pages.
+ * Ids are monotonic across all threads: when one millisecond is exhausted or clock goes back
+ * the generator keeps counting from the last issued value.
+ */
+public final class TimeOrderedUuid {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final AtomicLong LAST = new AtomicLong();
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * Method return new UUID which is greater than every UUID returned before
+     *
+     * @return                                  Time-ordered UUID
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        long previous;
+        long current;
+        do {
+            previous = LAST.get();
+            current = Math.max(now, previous + 1);
+        } while (!LAST.compareAndSet(previous, current));
+        return build(current, RANDOM.get().nextLong());
+    }
+
+    /**
+     * Method return the least UUID of given moment, it can be used as keyset cursor
+     * to read rows which are created after this moment
+     *
+     * @param moment                            Moment of time
+     * @return                                  The least time-ordered UUID of this millisecond
+     */
+    public static UUID minFor(final Instant moment) {
+        return build(moment.toEpochMilli() << COUNTER_BITS, 0);
+    }
+
+    /**
+     * Method return creation time of time-ordered UUID
+     *
+     * @param uuid                              UUID of version 7
+     * @return                                  Moment when UUID was generated
+     * @throws IllegalArgumentException         if UUID is not time-ordered
+     */
+    public static Instant timestampOf(final UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("UUID is not time-ordered: " + uuid);
+        }
+        return Instant.ofEpochMilli(uuid.getMostSignificantBits() >>> 16);
+    }
+
+    private static UUID build(final long timeAndCounter, final long random) {
+        long timestamp = timeAndCounter >>> COUNTER_BITS;
+        long counter = timeAndCounter & ((1L << COUNTER_BITS) - 1);
+        return new UUID(timestamp << 16 | VERSION | counter, random & RANDOM_MASK | VARIANT);
+    }
+}
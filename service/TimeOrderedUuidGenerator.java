@@ -0,0 +1,22 @@
+package carshare.service;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import java.io.Serializable;
+
+/**
+ * Hibernate identifier generator which assigns time-ordered UUIDs.
+ * Entity opts in with annotations on its id field:
+ * {@code @GeneratedValue(generator = "uuid7")} and
+ * {@code @GenericGenerator(name = "uuid7", strategy = "carshare.service.TimeOrderedUuidGenerator")}.
+ * Id is generated in application, so inserts still can be sent in JDBC batches.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    @Override
+    public Serializable generate(final SharedSessionContractImplementor session, final Object object)
+            throws HibernateException {
+        return TimeOrderedUuid.next();
+    }
+}
@@ -0,0 +1,36 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import carshare.database.entity.User;
+
+/**
+ * Field which value must be unique among all entities of its type
+ */
+public enum UniqueField {
+    CAR_VIN(Car.class, "vin"),
+    CAR_NUMBER(Car.class, "number"),
+    USER_LOGIN(User.class, "login"),
+    USER_EMAIL(User.class, "email"),
+    USER_PHONE(User.class, "mobilePhone");
+
+    private final Class<?> entityType;
+    private final String attribute;
+
+    UniqueField(final Class<?> entityType, final String attribute) {
+        this.entityType = entityType;
+        this.attribute = attribute;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Method return name of entity attribute which holds unique value
+     *
+     * @return                                  Attribute name
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+}
@@ -0,0 +1,243 @@
+package carshare.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fast uniqueness checks of VIN, plate number, login, email and phone.
+ * Every field has Bloom filter of all stored values: value which is definitely absent in filter
+ * is new without database query, only possible collisions are checked by indexed query.
+ * Database unique constraints stay the source of truth, filter only skips lookups.
+ * Filters are written to snapshot on shutdown, snapshot is deleted once it is loaded,
+ * so after crash filters are rebuilt from database instead of trusting stale snapshot.
+ */
+@Component
+public class UniquenessGuard {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UniquenessGuard.class);
+    private static final int VERSION = 1;
+    private static final int REBUILD_PAGE_SIZE = 10000;
+
+    private final EntityManager entityManager;
+    private final Path snapshot;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final Map<UniqueField, BloomFilter> filters = new ConcurrentHashMap<>();
+    private final Set<UniqueField> ready = ConcurrentHashMap.newKeySet();
+    private final LongAdder skippedLookups = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    @Autowired
+    public UniquenessGuard(
+            final EntityManager entityManager,
+            @Value("${carshare.uniqueness.snapshot:uniqueness.bloom}") final String snapshot,
+            @Value("${carshare.uniqueness.expected-insertions:1000000}") final long expectedInsertions,
+            @Value("${carshare.uniqueness.false-positive-probability:0.01}") final double falsePositiveProbability
+    ) {
+        this.entityManager = entityManager;
+        this.snapshot = Paths.get(snapshot).toAbsolutePath();
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Method load filters from snapshot written on previous shutdown
+     */
+    @PostConstruct
+    public void loadSnapshot() {
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (input.readInt() == VERSION) {
+                int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    UniqueField field = UniqueField.valueOf(input.readUTF());
+                    filters.put(field, BloomFilter.readFrom(input));
+                    ready.add(field);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Uniqueness snapshot {} is not loaded, filters will be rebuilt", snapshot, e);
+            filters.clear();
+            ready.clear();
+        }
+        try {
+            Files.delete(snapshot);
+        } catch (IOException e) {
+            LOGGER.warn("Uniqueness snapshot {} is not deleted after load", snapshot, e);
+        }
+    }
+
+    /**
+     * Method build filters which were not loaded from snapshot, it runs once application is started.
+     * Until filter is built every check of its field goes to database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildMissing() {
+        for (UniqueField field : UniqueField.values()) {
+            if (ready.contains(field)) {
+                continue;
+            }
+            try {
+                BloomFilter filter = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+                filters.put(field, filter);
+                int values = fill(filter, field, field.getEntityType());
+                ready.add(field);
+                LOGGER.info("Uniqueness filter of {} is built from {} values", field, values);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Uniqueness filter of {} is not built", field, e);
+            }
+        }
+    }
+
+    /**
+     * Method check if value of unique field is already stored
+     *
+     * @param field                             Unique field
+     * @param value                             Value of field
+     * @return                                  True if entity with this value exists
+     */
+    public boolean isTaken(final UniqueField field, final String value) {
+        if (value == null) {
+            return false;
+        }
+        boolean filtered = ready.contains(field);
+        if (filtered && !filters.get(field).mightContain(value)) {
+            skippedLookups.increment();
+            return false;
+        }
+        databaseLookups.increment();
+        boolean taken = exists(field, field.getEntityType(), value);
+        if (filtered && !taken) {
+            falsePositives.increment();
+        }
+        return taken;
+    }
+
+    /**
+     * Method accepts stored value of unique field and add it to filter
+     *
+     * @param field                             Unique field
+     * @param value                             Stored value
+     */
+    public void register(final UniqueField field, final String value) {
+        BloomFilter filter = filters.get(field);
+        if (filter != null) {
+            filter.put(value);
+        }
+    }
+
+    /**
+     * Method write snapshot of filters, it runs on shutdown
+     */
+    @PreDestroy
+    public void saveSnapshot() {
+        if (ready.size() != UniqueField.values().length) {
+            return;
+        }
+        try {
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                output.writeInt(VERSION);
+                output.writeInt(filters.size());
+                for (Map.Entry<UniqueField, BloomFilter> filter : filters.entrySet()) {
+                    output.writeUTF(filter.getKey().name());
+                    filter.getValue().writeTo(output);
+                }
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Uniqueness snapshot {} is not written", snapshot, e);
+        }
+    }
+
+    /**
+     * Method return amount of checks answered by filter without database query
+     *
+     * @return                                  Amount of skipped lookups
+     */
+    public long getSkippedLookups() {
+        return skippedLookups.sum();
+    }
+
+    /**
+     * Method return amount of checks which were answered by database query,
+     * checks of values which filter might contain and all checks before filter is built
+     *
+     * @return                                  Amount of database lookups
+     */
+    public long getDatabaseLookups() {
+        return databaseLookups.sum();
+    }
+
+    /**
+     * Method return amount of database lookups which filter could not skip but value was new
+     *
+     * @return                                  Amount of false positives
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    private <T> boolean exists(final UniqueField field, final Class<T> type, final String value) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UUID> query = builder.createQuery(UUID.class);
+        Root<T> root = query.from(type);
+        query.select(root.<UUID>get("id")).where(builder.equal(root.get(field.getAttribute()), value));
+        return !entityManager.createQuery(query).setMaxResults(1).getResultList().isEmpty();
+    }
+
+    private <T> int fill(final BloomFilter filter, final UniqueField field, final Class<T> type) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        UUID cursor = null;
+        int values = 0;
+        while (true) {
+            CriteriaQuery<Tuple> query = builder.createTupleQuery();
+            Root<T> root = query.from(type);
+            query.multiselect(root.<UUID>get("id"), root.<String>get(field.getAttribute()))
+                    .orderBy(builder.asc(root.get("id")));
+            if (cursor != null) {
+                query.where(builder.greaterThan(root.<UUID>get("id"), cursor));
+            }
+            List<Tuple> rows = entityManager.createQuery(query).setMaxResults(REBUILD_PAGE_SIZE).getResultList();
+            for (Tuple row : rows) {
+                filter.put(row.get(1, String.class));
+                values++;
+            }
+            if (rows.size() < REBUILD_PAGE_SIZE) {
+                return values;
+            }
+            cursor = rows.get(rows.size() - 1).get(0, UUID.class);
+        }
+    }
+}
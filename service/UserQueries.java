@@ -0,0 +1,73 @@
+package carshare.service;
+
+import carshare.database.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Projection queries over users which read only needed columns instead of whole entity
+ */
+@Component
+public class UserQueries {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public UserQueries(final EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Method read only verification flag of user
+     *
+     * @param userId                            UUID of user
+     * @return                                  Verification flag or empty if user not exists
+     */
+    public Optional<Boolean> findVerified(final UUID userId) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Boolean> query = builder.createQuery(Boolean.class);
+        Root<User> root = query.from(User.class);
+        query.select(root.<Boolean>get("verified")).where(builder.equal(root.get("id"), userId));
+        List<Boolean> result = entityManager.createQuery(query).setMaxResults(1).getResultList();
+        if (result.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(Boolean.TRUE.equals(result.get(0)));
+    }
+
+    /**
+     * Method read only verification flags of many users
+     *
+     * @param userIds                           UUIDs of users
+     * @return                                  Verification flag by UUID, missing users are not included
+     */
+    public Map<UUID, Boolean> findVerified(final Collection<UUID> userIds) {
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Map<UUID, Boolean> verified = new HashMap<>();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        for (int from = 0; from < ids.size(); from += RepositoryLookups.IN_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(from, Math.min(ids.size(), from + RepositoryLookups.IN_CHUNK_SIZE));
+            CriteriaQuery<Tuple> query = builder.createTupleQuery();
+            Root<User> root = query.from(User.class);
+            query.multiselect(root.<UUID>get("id"), root.<Boolean>get("verified"))
+                    .where(root.get("id").in(chunk));
+            for (Tuple row : entityManager.createQuery(query).getResultList()) {
+                verified.put(row.get(0, UUID.class), Boolean.TRUE.equals(row.get(1, Boolean.class)));
+            }
+        }
+        return verified;
+    }
+}
@@ -7,20 +7,40 @@ import carshare.controller.dto.UserDetailsDTO;
 import carshare.controller.dto.JwtDTO;
 import carshare.database.entity.User;
 import carshare.database.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for user management
@@ -28,41 +48,187 @@ import java.util.stream.Collectors;
 @Service
 public class UserService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
+    private final KeysetPager keysetPager;
     private final RoleService roleService;
-    private final AuthenticationManager authenticationManager;
+    private final AccountStatusUserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
     private final JwtConfig jwtConfig;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashing;
+    private final PasswordCostPolicy passwordCostPolicy;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BatchWriter batchWriter;
+    private final UserQueries userQueries;
+    private final CustomUserDetailsService userDetailsService;
+    private final UniquenessGuard uniquenessGuard;
+    private final FetchPlans fetchPlans;
+    private final BoundedTtlCache<UUID, Boolean> verificationCache;
+    private final ThreadPoolExecutor saveExecutor;
 
     @Autowired
     public UserService(
             final UserRepository userRepository,
+            final KeysetPager keysetPager,
             final RoleService roleService,
-            final AuthenticationManager authenticationManager,
             final JwtConfig jwtConfig,
-            final PasswordEncoder passwordEncoder
+            final PasswordHashingExecutor passwordHashing,
+            final PasswordCostPolicy passwordCostPolicy,
+            final PlatformTransactionManager transactionManager,
+            final BatchWriter batchWriter,
+            final UserQueries userQueries,
+            final CustomUserDetailsService userDetailsService,
+            final UniquenessGuard uniquenessGuard,
+            final FetchPlans fetchPlans,
+            @Value("${carshare.cache.verification.size:10000}") final int verificationCacheSize,
+            @Value("${carshare.cache.verification.ttl:60s}") final Duration verificationCacheTtl,
+            @Value("${carshare.users.async-save.threads:2}") final int saveThreads,
+            @Value("${carshare.users.async-save.queue-size:64}") final int saveQueueSize
     ) {
         this.userRepository = userRepository;
+        this.keysetPager = keysetPager;
         this.roleService = roleService;
-        this.authenticationManager = authenticationManager;
         this.jwtConfig = jwtConfig;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
+        this.passwordCostPolicy = passwordCostPolicy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchWriter = batchWriter;
+        this.userQueries = userQueries;
+        this.userDetailsService = userDetailsService;
+        this.uniquenessGuard = uniquenessGuard;
+        this.fetchPlans = fetchPlans;
+        this.verificationCache = new BoundedTtlCache<>(verificationCacheSize, verificationCacheTtl);
+        AtomicInteger saveThreadCounter = new AtomicInteger();
+        this.saveExecutor = new ThreadPoolExecutor(saveThreads, saveThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(saveQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "user-save-" + saveThreadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
     }
 
     /**
-     * Method accepts userdata and if not null save new user to database
+     * Method accepts userdata and if not null save new user to database.
+     * Duplicate login, email or phone is rejected before password is hashed on dedicated hashing pool.
+     * Transaction is opened only to save hashed user, so connection is not held while password is hashed.
      *
      * @param user                          User data
      * @throws UserCreationException        if user is not created
      */
-    @Transactional
     public User create(final User user) throws UserCreationException {
         if (user == null) {
             throw new UserCreationException("Check your data and try again.");
         }
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        checkUnique(user);
+        String encodedPassword;
+        try {
+            encodedPassword = passwordHashing.encode(user.getPassword());
+        } catch (RejectedExecutionException e) {
+            throw new UserCreationException("Too many sign up requests, try again later.");
+        }
+        return transactionTemplate.execute(status -> saveNewUser(user, encodedPassword));
+    }
+
+    /**
+     * Method accepts userdata and save new user to database without blocking caller thread.
+     * Password is hashed on dedicated hashing pool, user is saved on separate small pool,
+     * so database round trips do not hold hashing threads.
+     * Future fails with UserCreationException right away if hashing or saving queue is full.
+     *
+     * @param user                          User data
+     * @return                              Future with created user
+     */
+    public CompletableFuture<User> createAsync(final User user) {
+        if (user == null) {
+            CompletableFuture<User> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new UserCreationException("Check your data and try again."));
+            return failed;
+        }
+        try {
+            checkUnique(user);
+        } catch (UserCreationException e) {
+            CompletableFuture<User> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return passwordHashing.encodeAsync(user.getPassword())
+                .thenApplyAsync(encodedPassword ->
+                        transactionTemplate.execute(status -> saveNewUser(user, encodedPassword)), saveExecutor)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        throw new CompletionException(
+                                new UserCreationException("Too many sign up requests, try again later."));
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
+    }
+
+    /**
+     * Method accepts list of users and save them to database in chunked batches.
+     * Passwords are hashed in parallel on hashing pool, passwords of duplicate users are not hashed,
+     * invalid user does not stop other users.
+     *
+     * @param users                         List of user data
+     * @return                              Result for every user in order of list
+     */
+    public List<BatchItemResult<User>> createAll(final List<User> users) {
+        Map<User, UserCreationException> duplicates = new IdentityHashMap<>();
+        for (User user : users) {
+            if (user != null) {
+                try {
+                    checkUnique(user);
+                } catch (UserCreationException e) {
+                    duplicates.put(user, e);
+                }
+            }
+        }
+        List<String> encodedPasswords = passwordHashing.encodeAll(users.stream()
+                .map(user -> user == null || duplicates.containsKey(user) ? null : user.getPassword())
+                .collect(Collectors.toList()));
+        Map<User, String> passwordsByUser = new IdentityHashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (users.get(i) != null) {
+                passwordsByUser.put(users.get(i), encodedPasswords.get(i));
+            }
+        }
+        return batchWriter.write(users, user -> {
+            if (duplicates.containsKey(user)) {
+                throw duplicates.get(user);
+            }
+            if (user == null || passwordsByUser.get(user) == null) {
+                throw new UserCreationException("Check your data and try again.");
+            }
+            return saveNewUser(user, passwordsByUser.get(user));
+        });
+    }
+
+    private User saveNewUser(final User user, final String encodedPassword) {
+        user.setPassword(encodedPassword);
         user.setRoles(roleService.getRole("USER"));
-        return userRepository.save(user);
+        return registerUnique(userRepository.save(user));
+    }
+
+    private void checkUnique(final User user) throws UserCreationException {
+        if (uniquenessGuard.isTaken(UniqueField.USER_LOGIN, user.getLogin())) {
+            throw new UserCreationException("User with this login already exists.");
+        }
+        if (uniquenessGuard.isTaken(UniqueField.USER_EMAIL, user.getEmail())) {
+            throw new UserCreationException("User with this email already exists.");
+        }
+        if (uniquenessGuard.isTaken(UniqueField.USER_PHONE, user.getMobilePhone())) {
+            throw new UserCreationException("User with this phone already exists.");
+        }
+    }
+
+    private User registerUnique(final User user) {
+        uniquenessGuard.register(UniqueField.USER_LOGIN, user.getLogin());
+        uniquenessGuard.register(UniqueField.USER_EMAIL, user.getEmail());
+        uniquenessGuard.register(UniqueField.USER_PHONE, user.getMobilePhone());
+        return user;
     }
 
     /**
@@ -72,11 +238,35 @@ public class UserService {
      * @return                              User data
      * @throws UserNotFoundException        if user not found
      */
+    @Transactional(readOnly = true)
     public User getById(final UUID userId) throws UserNotFoundException {
-        if (!userRepository.existsById(userId)){
-            throw new UserNotFoundException("User not exists.");
-        }
-        return userRepository.findById(userId).orElse(new User());
+        return RepositoryLookups.findOrThrow(userRepository, userId,
+                () -> new UserNotFoundException("User not exists."));
+    }
+
+    /**
+     * Method accepts UUID of user and return user with associations of fetch plan loaded by one query
+     *
+     * @param userId                        UUID of user data
+     * @param plan                          USER_PROFILE or AUTH_PRINCIPAL
+     * @return                              User data
+     * @throws UserNotFoundException        if user not found
+     */
+    @Transactional(readOnly = true)
+    public User getById(final UUID userId, final FetchPlan plan) throws UserNotFoundException {
+        return fetchPlans.find(User.class, userId, plan)
+                .orElseThrow(() -> new UserNotFoundException("User not exists."));
+    }
+
+    /**
+     * Method accepts UUIDs of users and return all of them with few "in" queries
+     *
+     * @param userIds                       UUIDs of users
+     * @return                              Found users in order of UUIDs and missing UUIDs
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResult<User> getByIds(final Collection<UUID> userIds) {
+        return RepositoryLookups.findAllOrdered(userRepository, userIds, User::getId);
     }
 
     /**
@@ -84,10 +274,70 @@ public class UserService {
      *
      * @return                              List of users
      */
+    @Transactional(readOnly = true)
     public List<User> getAll() {
         return new ArrayList<>((Collection<? extends User>) userRepository.findAll());
     }
 
+    /**
+     * Method return list of all users with associations of fetch plan loaded by one query
+     *
+     * @param plan                          USER_PROFILE or AUTH_PRINCIPAL
+     * @return                              List of users
+     */
+    @Transactional(readOnly = true)
+    public List<User> getAll(final FetchPlan plan) {
+        return fetchPlans.findAll(User.class, plan);
+    }
+
+    /**
+     * Method return one page of users ordered by UUID, started after given cursor
+     *
+     * @param after                         Cursor from previous page, null for first page
+     * @param size                          Max amount of users on page
+     * @return                              Page of users with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<User> getPage(final UUID after, final int size) {
+        return keysetPager.page(User.class, after, size, User::getId);
+    }
+
+    /**
+     * Method return one page of users with associations of fetch plan, page is read by two queries
+     *
+     * @param after                         Cursor from previous page, null for first page
+     * @param size                          Max amount of users on page
+     * @param plan                          USER_PROFILE or AUTH_PRINCIPAL
+     * @return                              Page of users with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<User> getPage(final UUID after, final int size, final FetchPlan plan) {
+        return fetchPlans.page(User.class, after, size, plan, User::getId);
+    }
+
+    /**
+     * Method return one page of the newest users, started before given cursor
+     *
+     * @param before                        Cursor from previous page, null for first page
+     * @param size                          Max amount of users on page
+     * @return                              Page of users with cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<User> getNewestPage(final UUID before, final int size) {
+        return keysetPager.newestPage(User.class, before, size, User::getId);
+    }
+
+    /**
+     * Method return lazy stream of all users, which is read from database by chunks,
+     * so memory used by one call does not depend on amount of users
+     *
+     * @param chunkSize                     Amount of users read by one query
+     * @return                              Stream of all users
+     */
+    public Stream<User> stream(final int chunkSize) {
+        return keysetPager.stream(User.class, chunkSize, User::getId);
+    }
+
 
     /**
      * Method accepts user data change fields and rewrite it to database
@@ -97,10 +347,15 @@ public class UserService {
      */
     @Transactional
     public User update(final User user) throws UserNotFoundException {
-        if (!userRepository.existsById(user.getId())){
-            throw new UserNotFoundException("User not exists.");
-        }
-        return userRepository.save(user);
+        String previousLogin = RepositoryLookups.findOrThrow(userRepository, user.getId(),
+                () -> new UserNotFoundException("User not exists.")).getLogin();
+        User updatedUser = registerUnique(userRepository.save(user));
+        TransactionHooks.afterCommit(() -> {
+            verificationCache.invalidate(user.getId());
+            userDetailsService.evict(previousLogin);
+            userDetailsService.evict(user.getLogin());
+        });
+        return updatedUser;
     }
 
     /**
@@ -111,25 +366,106 @@ public class UserService {
      */
     @Transactional
     public UUID delete(final UUID userId) throws UserNotFoundException {
-        if (!userRepository.existsById(userId)){
-            throw new UserNotFoundException("User not exists.");
-        }
-        userRepository.deleteById(userId);
+        User user = RepositoryLookups.findOrThrow(userRepository, userId,
+                () -> new UserNotFoundException("User not exists."));
+        userRepository.delete(user);
+        String login = user.getLogin();
+        TransactionHooks.afterCommit(() -> {
+            verificationCache.invalidate(userId);
+            userDetailsService.evict(login);
+        });
         return userId;
     }
 
     /**
-     * Method authenticate user by login and password
+     * Method authenticate user by login and password.
+     * User is loaded on caller thread, only password check runs on dedicated hashing pool,
+     * password hash with outdated cost is transparently replaced by hash with calibrated cost.
      *
      * @param login                         user login from SingIn request
      * @param password                      user password from SingIn request
      * @return                              JwtDTO with userdata, jwt token and roles
      */
     public JwtDTO login(final String login, final String password) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(login, password));
-
+        UserDetailsDTO userDetails = findForLogin(login);
+        boolean matches;
+        try {
+            matches = passwordHashing.call(() -> passwordCostPolicy.matches(password, passwordOf(userDetails)));
+        } catch (RejectedExecutionException e) {
+            throw new AuthenticationServiceException("Too many login requests, try again later.", e);
+        }
+        Authentication authentication = authenticated(userDetails, matches);
+        rehashIfOutdated(userDetails, password);
         SecurityContextHolder.getContext().setAuthentication(authentication);
+        return toJwt(authentication);
+    }
+
+    /**
+     * Method authenticate user by login and password without blocking caller thread on password check.
+     * User is loaded on caller thread, password is checked on hashing pool,
+     * outdated hash is replaced on user save pool, so database round trips do not hold hashing threads.
+     * Security context is not changed, because future completes on other thread.
+     *
+     * @param login                         user login from SingIn request
+     * @param password                      user password from SingIn request
+     * @return                              Future with JwtDTO, fails right away if hashing queue is full
+     */
+    public CompletableFuture<JwtDTO> loginAsync(final String login, final String password) {
+        UserDetailsDTO userDetails;
+        try {
+            userDetails = findForLogin(login);
+        } catch (RuntimeException e) {
+            CompletableFuture<JwtDTO> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return passwordHashing.submit(() -> passwordCostPolicy.matches(password, passwordOf(userDetails)))
+                .thenApplyAsync(matches -> {
+                    Authentication authentication = authenticated(userDetails, matches);
+                    rehashIfOutdated(userDetails, password);
+                    return toJwt(authentication);
+                }, saveExecutor);
+    }
+
+    private UserDetailsDTO findForLogin(final String login) {
+        try {
+            return (UserDetailsDTO) userDetailsService.loadUserByUsername(login);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static String passwordOf(final UserDetailsDTO userDetails) {
+        return userDetails == null ? null : userDetails.getPassword();
+    }
+
+    private Authentication authenticated(final UserDetailsDTO userDetails, final boolean matches) {
+        if (userDetails == null || !matches) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        accountStatusChecker.check(userDetails);
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+
+    private void rehashIfOutdated(final UserDetailsDTO userDetails, final String password) {
+        if (passwordCostPolicy.needsRehash(userDetails.getPassword())) {
+            rehashPassword(userDetails.getId(), userDetails.getUsername(), password);
+        }
+    }
+
+    private void rehashPassword(final UUID userId, final String login, final String password) {
+        try {
+            String encodedPassword = passwordHashing.encode(password);
+            transactionTemplate.executeWithoutResult(status ->
+                    userRepository.findById(userId).ifPresent(user -> user.setPassword(encodedPassword))
+            );
+            userDetailsService.evict(login);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Password rehash failed for user {}", userId, e);
+        }
+    }
+
+    private JwtDTO toJwt(final Authentication authentication) {
         String jwt = jwtConfig.generateJwtToken(authentication);
 
         UserDetailsDTO userDetails = (UserDetailsDTO) authentication.getPrincipal();
@@ -152,12 +488,29 @@ public class UserService {
     }
 
     /**
-     * Method check if user verified
+     * Method check if user verified.
+     * Only verification column is read from database and result is cached for short time,
+     * cache entry is evicted when user is updated or deleted.
+     * Value read before concurrent update is not cached if update was invalidated while it was read.
+     * Read-only transaction is opened only on cache miss, so cache hit does not take connection.
      *
      * @param userId                         User id for verification check
      * @return                               Result of verification
+     * @throws UserNotFoundException         if user not found
      */
     public boolean isVerified(final UUID userId) throws UserNotFoundException {
-        return getById(userId).getVerified();
+        Boolean verified = verificationCache.get(userId);
+        if (verified == null) {
+            long generation = verificationCache.generation();
+            Optional<Boolean> stored = readOnlyTransaction.execute(status -> userQueries.findVerified(userId));
+            verified = stored.orElseThrow(() -> new UserNotFoundException("User not exists."));
+            verificationCache.putIfNotInvalidated(userId, verified, generation);
+        }
+        return verified;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveExecutor.shutdown();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void noFalseNegativesTest() {
+        //Init
+        BloomFilter filter = BloomFilter.create(10000, 0.01);
+
+        //When
+        for (int i = 0; i < 10000; i++) {
+            filter.put("login_" + i);
+        }
+
+        //Then
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("login_" + i));
+        }
+    }
+
+    @Test
+    void falsePositiveRateTest() {
+        //Init
+        BloomFilter filter = BloomFilter.create(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("login_" + i);
+        }
+
+        //When
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("email_" + i)) {
+                falsePositives++;
+            }
+        }
+
+        //Then
+        assertTrue(falsePositives < 300, "Too many false positives: " + falsePositives);
+    }
+
+    @Test
+    void snapshotTest() throws IOException {
+        //Init
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        filter.put("WVWZZZ1KZAW000001");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        //When
+        BloomFilter restored = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        //Then
+        assertTrue(restored.mightContain("WVWZZZ1KZAW000001"));
+        assertFalse(restored.mightContain("WVWZZZ1KZAW000002"));
+        assertEquals(filter.bitSize(), restored.bitSize());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void getTest() {
+        //Init
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMinutes(1));
+        cache.put("test_login", "TEST");
+
+        //When
+        String cached = cache.get("test_login");
+        String missing = cache.get("missing_login");
+
+        //Then
+        assertEquals("TEST", cached);
+        assertNull(missing);
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void evictLeastRecentlyUsedTest() {
+        //Init
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, Duration.ofMinutes(1));
+        cache.put("first", "TEST");
+        cache.put("second", "TEST");
+        cache.get("first");
+
+        //When
+        cache.put("third", "TEST");
+
+        //Then
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(2, cache.stats().getSize());
+    }
+
+    @Test
+    void expiredEntryTest() {
+        //Init
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ZERO);
+        cache.put("test_login", "TEST");
+
+        //Then
+        assertNull(cache.get("test_login"));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    void invalidateTest() {
+        //Init
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMinutes(1));
+        cache.put("test_login", "TEST");
+
+        //When
+        cache.invalidate("test_login");
+
+        //Then
+        assertNull(cache.get("test_login"));
+    }
+
+    @Test
+    void loadedBeforeInvalidationTest() {
+        //Init
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMinutes(1));
+        long generation = cache.generation();
+
+        //When
+        cache.invalidate("test_login");
+        boolean cached = cache.putIfNotInvalidated("test_login", "OLD", generation);
+
+        //Then
+        assertFalse(cached);
+        assertNull(cache.get("test_login"));
+        assertTrue(cache.putIfNotInvalidated("test_login", "NEW", cache.generation()));
+        assertEquals("NEW", cache.get("test_login"));
+    }
+}
\ No newline at end of file
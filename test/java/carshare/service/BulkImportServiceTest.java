@@ -0,0 +1,175 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkImportServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private CarService carService;
+    private final List<String> importedVins = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        carService = mock(CarService.class);
+        when(carService.createAll(anyList())).thenAnswer(invocation -> {
+            List<Car> cars = invocation.getArgument(0);
+            List<BatchItemResult<Car>> results = new ArrayList<>();
+            for (int i = 0; i < cars.size(); i++) {
+                importedVins.add(cars.get(i).getVin());
+                results.add(BatchItemResult.success(i, cars.get(i)));
+            }
+            return results;
+        });
+    }
+
+    @Test
+    void invalidNdjsonLineTest() throws IOException {
+        //Init
+        String file = "{\"vin\":\"VIN_1\"}\n{broken\n\n{\"vin\":\"VIN_3\"}\n";
+
+        //When
+        ImportReport report = importService(2, 1).importCars(input(file), ImportFormat.NDJSON, null);
+
+        //Then
+        assertEquals(2, report.getImportedRecords());
+        assertEquals(1, report.getFailedRecords());
+        assertTrue(report.getFailures().get(0).startsWith("Record 2: "));
+        assertEquals(Arrays.asList("VIN_1", "VIN_3"), importedVins);
+    }
+
+    @Test
+    void backPressureTest() throws Exception {
+        //Init
+        CountDownLatch firstChunkStarted = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        when(carService.createAll(anyList())).thenAnswer(invocation -> {
+            firstChunkStarted.countDown();
+            releaseWriter.await(10, TimeUnit.SECONDS);
+            List<Car> cars = invocation.getArgument(0);
+            return Collections.singletonList(BatchItemResult.success(0, cars.get(0)));
+        });
+        RecordStream input = new RecordStream(20);
+        BulkImportService importService = importService(1, 1);
+        Thread importer = new Thread(() -> {
+            try {
+                importService.importCars(input, ImportFormat.NDJSON, null);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        //When
+        importer.start();
+        assertTrue(firstChunkStarted.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        int readWhileWriterIsBlocked = input.produced.get();
+        releaseWriter.countDown();
+        importer.join(10_000);
+
+        //Then
+        assertTrue(readWhileWriterIsBlocked <= 5, "Parser read " + readWhileWriterIsBlocked + " records ahead");
+        assertEquals(20, input.produced.get());
+    }
+
+    @Test
+    void resumeFromCheckpointTest() throws IOException {
+        //Init
+        Path checkpoint = directory.resolve("cars.checkpoint");
+        Files.write(checkpoint, "2".getBytes(StandardCharsets.UTF_8));
+        String file = "vin\nVIN_1\nVIN_2\nVIN_3\nVIN_4\n";
+
+        //When
+        ImportReport report = importService(2, 1).importCars(input(file), ImportFormat.CSV, checkpoint);
+
+        //Then
+        assertEquals(2, report.getSkippedRecords());
+        assertEquals(2, report.getImportedRecords());
+        assertEquals(Arrays.asList("VIN_3", "VIN_4"), importedVins);
+        assertFalse(Files.exists(checkpoint), "Checkpoint is not removed after import");
+    }
+
+    @Test
+    void checkpointAfterFailedChunkTest() throws IOException {
+        //Init
+        Path checkpoint = directory.resolve("cars.checkpoint");
+        String file = "vin\nVIN_1\nVIN_2\nVIN_3\nVIN_4\n";
+        AtomicInteger calls = new AtomicInteger();
+        when(carService.createAll(anyList())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("Database is down");
+            }
+            List<Car> cars = invocation.getArgument(0);
+            return Arrays.asList(BatchItemResult.success(0, cars.get(0)), BatchItemResult.success(1, cars.get(1)));
+        });
+
+        //When
+        assertThrows(IllegalStateException.class,
+                () -> importService(2, 1).importCars(input(file), ImportFormat.CSV, checkpoint));
+
+        //Then
+        assertEquals("2", new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8));
+    }
+
+    private BulkImportService importService(final int chunkSize, final int queuedChunks) {
+        PasswordCostPolicy passwordCostPolicy = mock(PasswordCostPolicy.class);
+        when(passwordCostPolicy.getEncodeTimings()).thenReturn(new LatencyRecorder());
+        return new BulkImportService(mock(UserService.class), carService, passwordCostPolicy,
+                new ObjectMapper(), chunkSize, queuedChunks);
+    }
+
+    private static InputStream input(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * NDJSON stream which produces records on demand, every record is longer than reader buffer
+     */
+    private static final class RecordStream extends InputStream {
+
+        private final int records;
+        private final AtomicInteger produced = new AtomicInteger();
+        private byte[] current = new byte[0];
+        private int position;
+
+        private RecordStream(final int records) {
+            this.records = records;
+        }
+
+        @Override
+        public int read() {
+            if (position == current.length) {
+                if (produced.get() == records) {
+                    return -1;
+                }
+                current = ("{\"vin\":\"VIN_" + produced.incrementAndGet() + "\",\"description\":\""
+                        + String.join("", Collections.nCopies(20_000, "x")) + "\"}\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return current[position++];
+        }
+    }
+}
\ No newline at end of file
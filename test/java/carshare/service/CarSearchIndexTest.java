@@ -0,0 +1,117 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarSearchIndexTest {
+
+    private CarSearchIndex searchIndex;
+
+    private static Car car(final String brand, final String model, final String number, final String vin) {
+        Car car = new Car(UUID.randomUUID(), "TEST", "TEST", "TEST", "TEST", LocalDateTime.now(),
+                "TEST", "TEST", "TEST", null, null);
+        car.setBrand(brand);
+        car.setModel(model);
+        car.setNumber(number);
+        car.setVin(vin);
+        return car;
+    }
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new CarSearchIndex();
+    }
+
+    @Test
+    void combinedFiltersTest() {
+        //Init
+        Car golf = car("Volkswagen", "Golf", "AA 1234 BB", "WVWZZZ1KZAW000001");
+        Car polo = car("Volkswagen", "Polo", "AA 5678 BB", "WVWZZZ6RZAY000002");
+        Car corolla = car("Toyota", "Corolla", "AA 9999 BB", "JTDBR32E720000003");
+        searchIndex.rebuild(Stream.of(golf, polo, corolla));
+
+        //When
+        KeysetPage<UUID> page = searchIndex.search(Arrays.asList(
+                CarSearchFilter.prefix(CarSearchField.BRAND, "volks"),
+                CarSearchFilter.exact(CarSearchField.NUMBER, "aa5678-bb")), null, 10);
+
+        //Then
+        assertEquals(Collections.singletonList(polo.getId()), page.getItems());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    void pagingTest() {
+        //Init
+        searchIndex.rebuild(Stream.of(car("BMW", "X1", "1", "1"), car("BMW", "X3", "2", "2"),
+                car("BMW", "X5", "3", "3")));
+
+        //When
+        KeysetPage<UUID> firstPage = searchIndex.search(
+                Collections.singletonList(CarSearchFilter.prefix(CarSearchField.MODEL, "x")), null, 2);
+        KeysetPage<UUID> secondPage = searchIndex.search(
+                Collections.singletonList(CarSearchFilter.prefix(CarSearchField.MODEL, "x")),
+                firstPage.getNextCursor(), 2);
+
+        //Then
+        assertEquals(2, firstPage.getItems().size());
+        assertTrue(firstPage.hasNext());
+        assertEquals(1, secondPage.getItems().size());
+        assertFalse(secondPage.hasNext());
+        assertTrue(firstPage.getItems().get(1).compareTo(secondPage.getItems().get(0)) < 0);
+    }
+
+    @Test
+    void updateAndRemoveTest() {
+        //Init
+        Car car = car("Audi", "A4", "AA 0001 BB", "WAUZZZ8K0000004");
+        searchIndex.index(car);
+        car.setModel("A6");
+
+        //When
+        searchIndex.index(car);
+
+        //Then
+        assertTrue(searchIndex.search(Collections.singletonList(
+                CarSearchFilter.exact(CarSearchField.MODEL, "A4")), null, 10).getItems().isEmpty());
+        assertEquals(1, searchIndex.search(Collections.singletonList(
+                CarSearchFilter.exact(CarSearchField.MODEL, "a6")), null, 10).getItems().size());
+
+        //When
+        searchIndex.remove(car.getId());
+
+        //Then
+        assertEquals(0, searchIndex.size());
+        assertTrue(searchIndex.search(Collections.singletonList(
+                CarSearchFilter.prefix(CarSearchField.VIN, "wau")), null, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void searchDuringRebuildTest() {
+        //Init
+        Car golf = car("Volkswagen", "Golf", "AA 1234 BB", "WVWZZZ1KZAW000001");
+        Car polo = car("Volkswagen", "Polo", "AA 5678 BB", "WVWZZZ6RZAY000002");
+        searchIndex.rebuild(Stream.of(golf));
+        List<UUID> foundDuringRebuild = new ArrayList<>();
+
+        //When
+        searchIndex.rebuild(Stream.of(polo).peek(car -> foundDuringRebuild.addAll(searchIndex.search(
+                Collections.singletonList(CarSearchFilter.prefix(CarSearchField.BRAND, "volks")), null, 10)
+                .getItems())));
+
+        //Then
+        assertEquals(Collections.singletonList(golf.getId()), foundDuringRebuild);
+        assertEquals(Collections.singletonList(polo.getId()), searchIndex.search(
+                Collections.singletonList(CarSearchFilter.prefix(CarSearchField.BRAND, "volks")), null, 10)
+                .getItems());
+    }
+}
\ No newline at end of file
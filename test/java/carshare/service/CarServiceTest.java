@@ -14,7 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +29,10 @@ class CarServiceTest {
     private UserService userService;
     @MockBean
     private CarRepository carRepository;
+    @MockBean
+    private UserQueries userQueries;
+    @MockBean
+    private UniquenessGuard uniquenessGuard;
 
     private final CarService carService;
 
@@ -111,10 +117,37 @@ class CarServiceTest {
         verify(userService, times(1)).isVerified(car.getUser().getId());
     }
 
+    @Test
+    void createIfVinIsTakenTest() throws UserNotFoundException {
+        //Init
+        when(userService.isVerified(car.getUser().getId())).thenReturn(true);
+        when(uniquenessGuard.isTaken(UniqueField.CAR_VIN, car.getVin())).thenReturn(true);
+
+        //When
+        Throwable exception = assertThrows(CarCreationException.class, () -> carService.create(car));
+
+        //Then
+        assertEquals("Car with this VIN already exists.", exception.getMessage());
+        verify(carRepository, times(0)).save(car);
+    }
+
+    @Test
+    void createIfNumberIsTakenTest() throws UserNotFoundException {
+        //Init
+        when(userService.isVerified(car.getUser().getId())).thenReturn(true);
+        when(uniquenessGuard.isTaken(UniqueField.CAR_NUMBER, car.getNumber())).thenReturn(true);
+
+        //When
+        Throwable exception = assertThrows(CarCreationException.class, () -> carService.create(car));
+
+        //Then
+        assertEquals("Car with this number already exists.", exception.getMessage());
+        verify(carRepository, times(0)).save(car);
+    }
+
     @Test
     void getByIdTest() throws CarNotFoundException {
         //Init
-        when(carRepository.existsById(car.getId())).thenReturn(true);
         when(carRepository.findById(car.getId())).thenReturn(Optional.ofNullable(car));
 
         //When
@@ -129,19 +162,19 @@ class CarServiceTest {
         assertEquals(car.getUser().getLogin(), carById.getUser().getLogin());
         assertEquals(car.getUser().getEmail(), carById.getUser().getEmail());
         assertEquals(car.getUser().getMobilePhone(), carById.getUser().getMobilePhone());
-        verify(carRepository, times(1)).existsById(car.getId());
+        verify(carRepository, times(0)).existsById(car.getId());
         verify(carRepository, times(1)).findById(car.getId());
     }
 
     @Test
     void getByIdIfCarNotExistTest() {
         //Init
-        when(carRepository.existsById(car.getId())).thenReturn(false);
+        when(carRepository.findById(car.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(CarNotFoundException.class, () -> carService.getById(car.getId()));
-        verify(carRepository, times(1)).existsById(car.getId());
-        verify(carRepository, times(0)).findById(car.getId());
+        verify(carRepository, times(1)).findById(car.getId());
+        verify(carRepository, times(0)).existsById(car.getId());
     }
 
     @Test
@@ -151,7 +184,7 @@ class CarServiceTest {
         car.setNumber("NEW TEST");
         car.setVin("NEW TEST");
         car.setModel("NEW TEST");
-        when(carRepository.existsById(car.getId())).thenReturn(true);
+        when(carRepository.findById(car.getId())).thenReturn(Optional.ofNullable(car));
         when(userService.isVerified(car.getUser().getId())).thenReturn(true);
         when(carRepository.save(car)).thenReturn(car);
 
@@ -164,26 +197,26 @@ class CarServiceTest {
         assertEquals(car.getNumber(), updatedCar.getNumber());
         assertEquals(car.getBrand(), updatedCar.getBrand());
         assertEquals(car.getModel(), updatedCar.getModel());
-        verify(carRepository, times(1)).existsById(car.getId());
+        verify(carRepository, times(1)).findById(car.getId());
         verify(carRepository, times(1)).save(car);
     }
 
     @Test
     void updateIfCarNotExistTest() {
         //Init
-        when(carRepository.existsById(car.getId())).thenReturn(false);
+        when(carRepository.findById(car.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(CarNotFoundException.class, () -> carService.update(car));
-        verify(carRepository, times(1)).existsById(car.getId());
+        verify(carRepository, times(1)).findById(car.getId());
         verify(carRepository, times(0)).save(car);
     }
 
     @Test
     void deleteTest() throws CarNotFoundException {
         //Init
-        when(carRepository.existsById(car.getId())).thenReturn(true);
-        doNothing().when(carRepository).deleteById(car.getId());
+        when(carRepository.findById(car.getId())).thenReturn(Optional.ofNullable(car));
+        doNothing().when(carRepository).delete(car);
 
         //When
         UUID deletedCarId = carService.delete(car.getId());
@@ -191,18 +224,64 @@ class CarServiceTest {
         //Then
         assertNotNull(deletedCarId, "Car is not deleted.");
         assertEquals(car.getId(), deletedCarId);
-        verify(carRepository, times(1)).existsById(car.getId());
-        verify(carRepository, times(1)).deleteById(car.getId());
+        verify(carRepository, times(1)).findById(car.getId());
+        verify(carRepository, times(1)).delete(car);
     }
 
     @Test
     void deleteIfCarNotExist() {
         //Init
-        when(carRepository.existsById(car.getId())).thenReturn(false);
+        when(carRepository.findById(car.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(CarNotFoundException.class, () -> carService.delete(car.getId()));
-        verify(carRepository, times(1)).existsById(car.getId());
-        verify(carRepository, times(0)).deleteById(car.getId());
+        verify(carRepository, times(1)).findById(car.getId());
+        verify(carRepository, times(0)).delete(car);
+    }
+
+    @Test
+    void createAllTest() {
+        //Init
+        User notVerifiedUser = new User(UUID.randomUUID(), "TEST", "TEST", "TEST", "test_login_2",
+                "test_password", false, LocalDateTime.now(), "test2@gmail.com", "380672229998",
+                Sex.MALE, LocalDateTime.now(), "url", null, null, null);
+        Car notVerifiedCar = new Car(UUID.randomUUID(), "TEST", "TEST", "TEST", "TEST", LocalDateTime.now(),
+                "TEST", "TEST", "TEST", null, null);
+        notVerifiedCar.setUser(notVerifiedUser);
+        notVerifiedCar.setImages(Collections.emptySet());
+        when(userQueries.findVerified(anyCollection()))
+                .thenReturn(Collections.singletonMap(user.getId(), true));
+        when(carRepository.save(car)).thenReturn(car);
+
+        //When
+        List<BatchItemResult<Car>> results = carService.createAll(Arrays.asList(car, notVerifiedCar));
+
+        //Then
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(car.getVin(), results.get(0).getValue().getVin());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("User not verified or car data is invalid.", results.get(1).getError());
+        verify(userQueries, times(1)).findVerified(anyCollection());
+        verify(carRepository, times(1)).save(car);
+        verify(carRepository, times(0)).save(notVerifiedCar);
+    }
+
+    @Test
+    void deleteAllTest() {
+        //Init
+        UUID missingCarId = UUID.randomUUID();
+        when(carRepository.findById(car.getId())).thenReturn(Optional.ofNullable(car));
+        when(carRepository.findById(missingCarId)).thenReturn(Optional.empty());
+
+        //When
+        List<BatchItemResult<UUID>> results = carService.deleteAll(Arrays.asList(car.getId(), missingCarId));
+
+        //Then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(car.getId(), results.get(0).getValue());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Car not exists.", results.get(1).getError());
+        verify(carRepository, times(1)).delete(car);
     }
 }
\ No newline at end of file
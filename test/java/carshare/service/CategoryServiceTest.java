@@ -60,7 +60,6 @@ class CategoryServiceTest {
     @Test
     void getByIdTest() {
         //Init
-        when(categoryRepository.existsById(category.getId())).thenReturn(true);
         when(categoryRepository.findById(category.getId())).thenReturn(Optional.ofNullable(category));
 
         //When
@@ -76,11 +75,11 @@ class CategoryServiceTest {
     @Test
     void getByIdIfCategoryNotExistTest() {
         //Init
-        when(categoryRepository.existsById(category.getId())).thenReturn(false);
+        when(categoryRepository.findById(category.getId())).thenReturn(Optional.empty());
 
         //Then
         assertNull(categoryService.getById(category.getId()));
-        verify(categoryRepository, times(0)).findById(category.getId());
+        verify(categoryRepository, times(0)).existsById(category.getId());
     }
 
     @Test
@@ -88,7 +87,7 @@ class CategoryServiceTest {
         //Init
         category.setName("NEW TEST");
         category.setDescription("NEW TEST");
-        when(categoryRepository.existsById(category.getId())).thenReturn(true);
+        when(categoryRepository.findById(category.getId())).thenReturn(Optional.ofNullable(category));
         when(categoryRepository.save(category)).thenReturn(category);
 
         //When
@@ -98,27 +97,27 @@ class CategoryServiceTest {
         assertNotNull(updatedCategory, "Category is not updated.");
         assertEquals(category.getName(), updatedCategory.getName());
         assertEquals(category.getDescription(), updatedCategory.getDescription());
-        verify(categoryRepository, times(1)).existsById(category.getId());
+        verify(categoryRepository, times(1)).findById(category.getId());
         verify(categoryRepository, times(1)).save(category);
     }
 
     @Test
     void updateIfCategoryNotExistTest() {
         //Init
-        when(categoryRepository.existsById(category.getId())).thenReturn(false);
+        when(categoryRepository.findById(category.getId())).thenReturn(Optional.empty());
         when(categoryRepository.save(category)).thenReturn(category);
 
         //Then
         assertNull(categoryService.update(category));
-        verify(categoryRepository, times(1)).existsById(category.getId());
+        verify(categoryRepository, times(1)).findById(category.getId());
         verify(categoryRepository, times(0)).save(category);
     }
 
     @Test
     void deleteTest() {
         //Init
-        when(categoryRepository.existsById(category.getId())).thenReturn(true);
-        doNothing().when(categoryRepository).deleteById(category.getId());
+        when(categoryRepository.findById(category.getId())).thenReturn(Optional.ofNullable(category));
+        doNothing().when(categoryRepository).delete(category);
 
         //When
         UUID deletedCategoryId = categoryService.delete(category.getId());
@@ -126,18 +125,18 @@ class CategoryServiceTest {
         //Then
         assertNotNull(deletedCategoryId, "Category is not deleted.");
         assertEquals(category.getId(), deletedCategoryId);
-        verify(categoryRepository, times(1)).existsById(category.getId());
-        verify(categoryRepository, times(1)).deleteById(category.getId());
+        verify(categoryRepository, times(1)).findById(category.getId());
+        verify(categoryRepository, times(1)).delete(category);
     }
 
     @Test
     void deleteIfCategoryNotExistTest() {
         //Init
-        when(categoryRepository.existsById(category.getId())).thenReturn(false);
+        when(categoryRepository.findById(category.getId())).thenReturn(Optional.empty());
 
         //Then
         assertNull(categoryService.delete(category.getId()));
-        verify(categoryRepository, times(1)).existsById(category.getId());
-        verify(categoryRepository, times(0)).deleteById(category.getId());
+        verify(categoryRepository, times(1)).findById(category.getId());
+        verify(categoryRepository, times(0)).delete(category);
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readRecordsTest() {
+        //Init
+        CsvRecordReader reader = new CsvRecordReader(new BufferedReader(new StringReader(
+                "brand,model,user.id\r\nTEST,\"TEST, \"\"NEW\"\"\",1\r\n\r\nTEST_2,\"multi\nline\",2\r\n")));
+
+        //When
+        Map<String, Object> first = reader.next();
+        Map<String, Object> second = reader.next();
+
+        //Then
+        assertEquals("TEST", first.get("brand"));
+        assertEquals("TEST, \"NEW\"", first.get("model"));
+        assertEquals("1", ((Map<?, ?>) first.get("user")).get("id"));
+        assertEquals("multi\nline", second.get("model"));
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void emptyValuesAreSkippedTest() {
+        //Init
+        CsvRecordReader reader = new CsvRecordReader(new BufferedReader(new StringReader("login,email\ntest_login,\n")));
+
+        //When
+        Map<String, Object> record = reader.next();
+
+        //Then
+        assertEquals("test_login", record.get("login"));
+        assertFalse(record.containsKey("email"));
+    }
+
+    @Test
+    void emptyFileTest() {
+        assertFalse(new CsvRecordReader(new BufferedReader(new StringReader(""))).hasNext());
+    }
+}
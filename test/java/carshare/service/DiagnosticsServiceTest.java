@@ -0,0 +1,87 @@
+package carshare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.access.AccessDeniedException;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DiagnosticsServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private RoleService roleService;
+    private DiagnosticsService diagnosticsService;
+
+    @BeforeEach
+    void setUp() {
+        roleService = mock(RoleService.class);
+        diagnosticsService = new DiagnosticsService(roleService, dir.toString(), Duration.ofMinutes(1),
+                Duration.ofMinutes(5));
+    }
+
+    private static byte[] readAll(final InputStream input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    void classHistogramTest() throws Exception {
+        //Init
+        when(roleService.hasRole(any(), eq(RoleService.ADMIN))).thenReturn(true);
+
+        //When
+        String histogram;
+        try (InputStream input = diagnosticsService.classHistogram(false)) {
+            histogram = new String(readAll(input), StandardCharsets.UTF_8);
+        }
+
+        //Then
+        assertTrue(histogram.contains("java.lang.String"));
+        assertEquals(0, Files.list(dir).count());
+        assertThrows(IllegalStateException.class, () -> diagnosticsService.classHistogram(true));
+    }
+
+    @Test
+    void recordingTest() throws Exception {
+        //Init
+        when(roleService.hasRole(any(), eq(RoleService.ADMIN))).thenReturn(true);
+        long recordingId = diagnosticsService.startRecording("default", Duration.ofHours(1));
+
+        //When
+        byte[] recording;
+        try (InputStream input = diagnosticsService.stopRecording(recordingId)) {
+            recording = readAll(input);
+        }
+
+        //Then
+        assertTrue(recording.length > 0);
+        assertEquals(0, Files.list(dir).count());
+        assertThrows(IllegalStateException.class, () -> diagnosticsService.startRecording("default", null));
+        assertThrows(IllegalArgumentException.class, () -> diagnosticsService.stopRecording(recordingId));
+    }
+
+    @Test
+    void notAdminTest() {
+        //Init
+        when(roleService.hasRole(any(), eq(RoleService.ADMIN))).thenReturn(false);
+
+        //Then
+        assertThrows(AccessDeniedException.class, () -> diagnosticsService.classHistogram(true));
+        assertThrows(AccessDeniedException.class, () -> diagnosticsService.startRecording("default", null));
+    }
+}
\ No newline at end of file
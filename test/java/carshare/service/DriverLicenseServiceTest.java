@@ -77,7 +77,6 @@ class DriverLicenseServiceTest {
     @Test
     void getByIdTest() {
         //Init
-        when(driverLicenseRepository.existsById(driverLicense.getId())).thenReturn(true);
         when(driverLicenseRepository.findById(driverLicense.getId())).thenReturn(Optional.ofNullable(driverLicense));
 
         //When
@@ -91,14 +90,14 @@ class DriverLicenseServiceTest {
         assertEquals(driverLicense.getUser().getMobilePhone(), foundDriverLicense.getUser().getMobilePhone());
         assertEquals(driverLicense.getUser().getLogin(), foundDriverLicense.getUser().getLogin());
         assertEquals(driverLicense.getUser().getEmail(), foundDriverLicense.getUser().getEmail());
-        verify(driverLicenseRepository, times(1)).existsById(driverLicense.getId());
+        verify(driverLicenseRepository, times(0)).existsById(driverLicense.getId());
         verify(driverLicenseRepository, times(1)).findById(driverLicense.getId());
     }
 
     @Test
     void getByIdIfDriverLicenseNotExistTest() {
         //Init
-        when(driverLicenseRepository.existsById(driverLicense.getId())).thenReturn(false);
+        when(driverLicenseRepository.findById(driverLicense.getId())).thenReturn(Optional.empty());
 
         //Then
         assertNull(driverLicenseService.getById(driverLicense.getId()));
@@ -108,7 +107,7 @@ class DriverLicenseServiceTest {
     void updateTest(){
         //Init
         driverLicense.setNumber("TEST_TEST");
-        when(driverLicenseRepository.existsById(driverLicense.getId())).thenReturn(true);
+        when(driverLicenseRepository.findById(driverLicense.getId())).thenReturn(Optional.ofNullable(driverLicense));
         when(driverLicenseRepository.save(driverLicense)).thenReturn(driverLicense);
 
         //When
@@ -123,7 +122,7 @@ class DriverLicenseServiceTest {
     @Test
     void updateIfDriverLicenseNotExistTest(){
         //Init
-        when(driverLicenseRepository.existsById(driverLicense.getId())).thenReturn(false);
+        when(driverLicenseRepository.findById(driverLicense.getId())).thenReturn(Optional.empty());
 
         //Then
         assertNull(driverLicenseService.update(driverLicense));
@@ -133,8 +132,8 @@ class DriverLicenseServiceTest {
     @Test
     void deleteTest() {
         //Init
-        when(driverLicenseRepository.existsById(driverLicense.getId())).thenReturn(true);
-        doNothing().when(driverLicenseRepository).deleteById(driverLicense.getId());
+        when(driverLicenseRepository.findById(driverLicense.getId())).thenReturn(Optional.ofNullable(driverLicense));
+        doNothing().when(driverLicenseRepository).delete(driverLicense);
 
         //When
         UUID deletedDriverLicenseId = driverLicenseService.delete(driverLicense.getId());
@@ -142,18 +141,18 @@ class DriverLicenseServiceTest {
         //Then
         assertNotNull(deletedDriverLicenseId, "Driver license is not updated.");
         assertEquals(driverLicense.getId(), deletedDriverLicenseId);
-        verify(driverLicenseRepository, times(1)).existsById(driverLicense.getId());
-        verify(driverLicenseRepository, times(1)).deleteById(driverLicense.getId());
+        verify(driverLicenseRepository, times(1)).findById(driverLicense.getId());
+        verify(driverLicenseRepository, times(1)).delete(driverLicense);
     }
 
     @Test
     void deleteIfDriverLicenseNotExistTest() {
         //Init
-        when(driverLicenseRepository.existsById(driverLicense.getId())).thenReturn(false);
+        when(driverLicenseRepository.findById(driverLicense.getId())).thenReturn(Optional.empty());
 
         //Then
         assertNull(driverLicenseService.delete(driverLicense.getId()));
-        verify(driverLicenseRepository, times(1)).existsById(driverLicense.getId());
-        verify(driverLicenseRepository, times(0)).deleteById(driverLicense.getId());
+        verify(driverLicenseRepository, times(1)).findById(driverLicense.getId());
+        verify(driverLicenseRepository, times(0)).delete(driverLicense);
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import carshare.database.entity.User;
+import org.junit.jupiter.api.Test;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FetchPlansTest {
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final FetchPlans fetchPlans = new FetchPlans(entityManager, new KeysetPager(entityManager));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void carDetailGraphTest() {
+        //Init
+        EntityGraph<Car> graph = mock(EntityGraph.class);
+        when(entityManager.createEntityGraph(Car.class)).thenReturn(graph);
+
+        //When
+        EntityGraph<Car> planGraph = fetchPlans.graph(Car.class, FetchPlan.CAR_DETAIL);
+
+        //Then
+        assertSame(graph, planGraph);
+        verify(graph).addAttributeNodes("images");
+        verify(graph).addAttributeNodes("user");
+    }
+
+    @Test
+    void planOfAnotherEntityTest() {
+        assertThrows(IllegalArgumentException.class, () -> fetchPlans.graph(User.class, FetchPlan.CAR_CARD));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FullTextIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private FullTextIndex openIndex() throws IOException {
+        FullTextIndex index = new FullTextIndex(dir);
+        index.open();
+        return index;
+    }
+
+    @Test
+    void rankingTest() throws IOException {
+        //Init
+        FullTextIndex index = openIndex();
+        UUID withSeat = UUID.randomUUID();
+        UUID withSeats = UUID.randomUUID();
+        UUID electric = UUID.randomUUID();
+        index.put(withSeat, "Compact car with a child seat and long range");
+        index.put(withSeats, "Child seats, child friendly, two child seats included");
+        index.put(electric, "Electric city car");
+
+        //When
+        FullTextPage<UUID> page = index.search("child seat", 0, 10);
+
+        //Then
+        assertEquals(Arrays.asList(withSeats, withSeat), page.getItems());
+        assertEquals(2, page.getTotal());
+        assertFalse(page.hasNext());
+        assertEquals(Collections.singletonList(electric), index.search("ELECTRIC", 0, 10).getItems());
+    }
+
+    @Test
+    void pagingTest() throws IOException {
+        //Init
+        FullTextIndex index = openIndex();
+        for (int i = 0; i < 5; i++) {
+            index.put(UUID.randomUUID(), "electric car " + i);
+        }
+
+        //When
+        FullTextPage<UUID> page = index.search("electric", 2, 2);
+
+        //Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(5, page.getTotal());
+        assertTrue(page.hasNext());
+    }
+
+    @Test
+    void reopenAfterCloseTest() throws IOException {
+        //Init
+        FullTextIndex index = openIndex();
+        index.markComplete();
+        UUID kept = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        index.put(kept, "Electric car");
+        index.put(removed, "Electric van");
+        index.remove(removed);
+        index.close();
+
+        //When
+        FullTextIndex reopened = openIndex();
+
+        //Then
+        assertTrue(reopened.isPersisted());
+        assertEquals(1, reopened.size());
+        assertEquals(Collections.singletonList(kept), reopened.search("electric", 0, 10).getItems());
+    }
+
+    @Test
+    void reopenAfterCrashTest() throws IOException {
+        //Init
+        FullTextIndex index = openIndex();
+        index.put(UUID.randomUUID(), "Electric car");
+        index.markComplete();
+        index.close();
+        FullTextIndex crashed = openIndex();
+        crashed.put(UUID.randomUUID(), "Electric van");
+
+        //When
+        FullTextIndex reopened = openIndex();
+
+        //Then
+        assertFalse(reopened.isPersisted(), "Index of run which did not close is loaded");
+        assertEquals(0, reopened.size());
+    }
+
+    @Test
+    void notPersistedOnFirstOpenTest() throws IOException {
+        assertFalse(openIndex().isPersisted());
+    }
+
+    @Test
+    void reopenAfterInterruptedRebuildTest() throws IOException {
+        //Init
+        FullTextIndex index = openIndex();
+        index.put(UUID.randomUUID(), "Electric car");
+        index.markComplete();
+        index.clear();
+        index.put(UUID.randomUUID(), "Electric van");
+        index.close();
+
+        //When
+        FullTextIndex reopened = openIndex();
+
+        //Then
+        assertFalse(reopened.isPersisted(), "Index of interrupted rebuild is loaded");
+        assertEquals(0, reopened.size());
+    }
+
+    @Test
+    void reopenAfterCompletedRebuildTest() throws IOException {
+        //Init
+        FullTextIndex index = openIndex();
+        index.clear();
+        index.put(UUID.randomUUID(), "Electric van");
+        index.markComplete();
+        index.close();
+
+        //When
+        FullTextIndex reopened = openIndex();
+
+        //Then
+        assertTrue(reopened.isPersisted());
+        assertEquals(1, reopened.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageContentCacheTest {
+
+    @TempDir
+    Path root;
+
+    private Path file(final String name, final int size) throws IOException {
+        return Files.write(root.resolve(name), new byte[size]);
+    }
+
+    @Test
+    void admitOnSecondAccessTest() throws IOException {
+        //Init
+        ImageContentCache cache = new ImageContentCache(DataSize.ofBytes(100), DataSize.ofBytes(100), 10);
+        Path first = file("first", 10);
+
+        //When
+        ByteBuffer firstAccess = cache.get("first", first);
+        ByteBuffer secondAccess = cache.get("first", first);
+        ByteBuffer thirdAccess = cache.get("first", first);
+
+        //Then
+        assertNull(firstAccess, "Content is cached on first access");
+        assertEquals(10, secondAccess.remaining());
+        assertTrue(thirdAccess.isReadOnly());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(10, cache.getResidentBytes());
+    }
+
+    @Test
+    void evictLeastRecentlyUsedTest() throws IOException {
+        //Init
+        ImageContentCache cache = new ImageContentCache(DataSize.ofBytes(100), DataSize.ofBytes(100), 10);
+        Path first = file("first", 60);
+        Path second = file("second", 60);
+        cache.get("first", first);
+        cache.get("first", first);
+        cache.get("second", second);
+
+        //When
+        cache.get("second", second);
+
+        //Then
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(1, cache.stats().getSize());
+        assertEquals(60, cache.getResidentBytes());
+        assertNull(cache.get("first", first), "Evicted content is still cached");
+    }
+
+    @Test
+    void skipTooBigContentTest() throws IOException {
+        //Init
+        ImageContentCache cache = new ImageContentCache(DataSize.ofBytes(100), DataSize.ofBytes(50), 10);
+        Path big = file("big", 60);
+
+        //When
+        cache.get("big", big);
+
+        //Then
+        assertNull(cache.get("big", big));
+        assertEquals(0, cache.getResidentBytes());
+    }
+
+    @Test
+    void countEvictedMappingsTest() throws IOException {
+        //Init
+        ImageContentCache cache = new ImageContentCache(DataSize.ofBytes(100), DataSize.ofBytes(100), 10);
+        Path first = file("first", 60);
+        Path second = file("second", 60);
+        cache.get("first", first);
+        ByteBuffer firstContent = cache.get("first", first);
+        cache.get("second", second);
+
+        //When
+        cache.get("second", second);
+
+        //Then
+        assertEquals(60, cache.getResidentBytes());
+        assertEquals(120, cache.getMappedBytes(), "Evicted content which is still read is not counted");
+        assertEquals(60, firstContent.remaining());
+    }
+
+    @Test
+    void invalidateDuringLoadTest() throws IOException {
+        //Init
+        ImageContentCache cache = new ImageContentCache(DataSize.ofBytes(100), DataSize.ofBytes(100), 10);
+        long loadedAt = cache.generation();
+        ByteBuffer content = ByteBuffer.allocateDirect(10).asReadOnlyBuffer();
+
+        //When
+        cache.invalidate("first");
+        ByteBuffer returned = cache.put("first", content, loadedAt);
+
+        //Then
+        assertSame(content, returned);
+        assertEquals(0, cache.stats().getSize(), "Content loaded before invalidation is cached");
+        assertEquals(0, cache.getResidentBytes());
+    }
+}
\ No newline at end of file
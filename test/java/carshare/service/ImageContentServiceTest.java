@@ -0,0 +1,138 @@
+package carshare.service;
+
+import carshare.advice.exception.ImageNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageContentServiceTest {
+
+    @TempDir
+    Path root;
+
+    private ImageContentService imageContentService;
+    private ImageContentCache contentCache;
+    private String hash;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ImageStorage storage = new ImageStorage(root.toString(), "/images/blobs/", DataSize.ofMegabytes(1),
+                Duration.ZERO);
+        hash = storage.store(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)));
+        contentCache = new ImageContentCache(DataSize.ofKilobytes(1), DataSize.ofKilobytes(1), 100);
+        imageContentService = new ImageContentService(storage, contentCache);
+    }
+
+    private static String body(final ImageContent content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        content.writeTo(Channels.newChannel(output));
+        content.close();
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void fullContentTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, null, null);
+
+        //Then
+        assertEquals(ImageContent.OK, content.getStatus());
+        assertEquals("\"" + hash + "\"", content.getHeaders().get("ETag"));
+        assertEquals("10", content.getHeaders().get("Content-Length"));
+        assertEquals("0123456789", body(content));
+    }
+
+    @Test
+    void rangeTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, "bytes=2-4", null);
+
+        //Then
+        assertEquals(ImageContent.PARTIAL_CONTENT, content.getStatus());
+        assertEquals("bytes 2-4/10", content.getHeaders().get("Content-Range"));
+        assertEquals("234", body(content));
+    }
+
+    @Test
+    void cachedRangeTest() throws IOException, ImageNotFoundException {
+        //Init
+        body(imageContentService.open(hash, null, null));
+        body(imageContentService.open(hash, null, null));
+
+        //When
+        ImageContent content = imageContentService.open(hash, "bytes=2-4", null);
+
+        //Then
+        assertEquals(ImageContent.PARTIAL_CONTENT, content.getStatus());
+        assertEquals("234", body(content));
+        assertEquals(1, contentCache.stats().getHits());
+        assertEquals(10, contentCache.getResidentBytes());
+    }
+
+    @Test
+    void suffixRangeTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, "bytes=-3", null);
+
+        //Then
+        assertEquals(ImageContent.PARTIAL_CONTENT, content.getStatus());
+        assertEquals("789", body(content));
+    }
+
+    @Test
+    void notSatisfiableRangeTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, "bytes=20-", null);
+
+        //Then
+        assertEquals(ImageContent.RANGE_NOT_SATISFIABLE, content.getStatus());
+        assertEquals("bytes */10", content.getHeaders().get("Content-Range"));
+    }
+
+    @Test
+    void invalidRangeTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, "bytes=5-3", null);
+
+        //Then
+        assertEquals(ImageContent.OK, content.getStatus());
+        assertNull(content.getHeaders().get("Content-Range"));
+        assertEquals("0123456789", body(content));
+    }
+
+    @Test
+    void notModifiedTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, null, "\"" + hash + "\"");
+
+        //Then
+        assertEquals(ImageContent.NOT_MODIFIED, content.getStatus());
+        assertEquals(0, content.getLength());
+    }
+
+    @Test
+    void anyMatchTest() throws IOException, ImageNotFoundException {
+        //When
+        ImageContent content = imageContentService.open(hash, null, "*");
+
+        //Then
+        assertEquals(ImageContent.NOT_MODIFIED, content.getStatus());
+        assertThrows(ImageNotFoundException.class, () -> imageContentService.open(
+                "0000000000000000000000000000000000000000000000000000000000000000", null, "*"));
+    }
+
+    @Test
+    void missingContentTest() {
+        assertThrows(ImageNotFoundException.class, () -> imageContentService.open(
+                "0000000000000000000000000000000000000000000000000000000000000000", null, null));
+    }
+}
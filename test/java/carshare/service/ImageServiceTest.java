@@ -10,10 +10,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -24,12 +40,16 @@ class ImageServiceTest {
 
     @MockBean
     private ImageRepository imageRepository;
+    @MockBean
+    private ImageQueries imageQueries;
 
     private final ImageService imageService;
+    private final ImageStorage imageStorage;
 
     @Autowired
-    public ImageServiceTest(final ImageService imageService) {
+    public ImageServiceTest(final ImageService imageService, final ImageStorage imageStorage) {
         this.imageService = imageService;
+        this.imageStorage = imageStorage;
     }
 
     static Image image;
@@ -74,7 +94,6 @@ class ImageServiceTest {
     @Test
     void getByIdTest() throws ImageNotFoundException {
         //Init
-        when(imageRepository.existsById(image.getId())).thenReturn(true);
         when(imageRepository.findById(image.getId())).thenReturn(Optional.ofNullable(image));
 
         //When
@@ -87,26 +106,42 @@ class ImageServiceTest {
         assertEquals(image.getCar().getNumber(), imageById.getCar().getNumber());
         assertEquals(image.getCar().getVin(), imageById.getCar().getVin());
         assertEquals(image.getCar().getBrand(), imageById.getCar().getBrand());
-        verify(imageRepository, times(1)).existsById(image.getId());
+        verify(imageRepository, times(0)).existsById(image.getId());
         verify(imageRepository, times(1)).findById(image.getId());
     }
 
+    @Test
+    void getByIdWithWidthTest() throws ImageNotFoundException {
+        //Init
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.ofNullable(image));
+
+        //When
+        ImageView imageView = imageService.getById(image.getId(), 480);
+
+        //Then
+        assertEquals(image.getId(), imageView.getId());
+        assertEquals(image.getUrl(), imageView.getUrl());
+        assertFalse(imageView.isVariant());
+        assertEquals(car.getId(), imageView.getCarId());
+        assertEquals("TEST", image.getUrl(), "Image entity is changed");
+    }
+
     @Test
     void getByIdIfImageNotExistTest() {
         //Init
-        when(imageRepository.existsById(image.getId())).thenReturn(false);
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(ImageNotFoundException.class, () -> imageService.getById(image.getId()));
-        verify(imageRepository, times(1)).existsById(image.getId());
-        verify(imageRepository, times(0)).findById(image.getId());
+        verify(imageRepository, times(1)).findById(image.getId());
+        verify(imageRepository, times(0)).existsById(image.getId());
     }
 
     @Test
     void updateTest() throws ImageNotFoundException {
         //Init
         image.setUrl("TEST_TEST");
-        when(imageRepository.existsById(image.getId())).thenReturn(true);
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.ofNullable(image));
         when(imageRepository.save(image)).thenReturn(image);
 
         //When
@@ -115,26 +150,26 @@ class ImageServiceTest {
         //Then
         assertNotNull(updatedImage, "Image is not updated.");
         assertEquals("TEST_TEST", updatedImage.getUrl());
-        verify(imageRepository, times(1)).existsById(image.getId());
+        verify(imageRepository, times(1)).findById(image.getId());
         verify(imageRepository, times(1)).save(image);
     }
 
     @Test
     void updateIfImageNotExistTest() {
         //Init
-        when(imageRepository.existsById(image.getId())).thenReturn(false);
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(ImageNotFoundException.class, () -> imageService.update(image));
-        verify(imageRepository, times(1)).existsById(image.getId());
+        verify(imageRepository, times(1)).findById(image.getId());
         verify(imageRepository, times(0)).save(image);
     }
 
     @Test
     void deleteTest() throws ImageNotFoundException {
         //Init
-        when(imageRepository.existsById(image.getId())).thenReturn(true);
-        doNothing().when(imageRepository).deleteById(image.getId());
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.ofNullable(image));
+        doNothing().when(imageRepository).delete(image);
 
         //When
         UUID deletedImageId = imageService.delete(image.getId());
@@ -142,18 +177,165 @@ class ImageServiceTest {
         //Then
         assertNotNull(deletedImageId, "Image is not updated.");
         assertEquals(image.getId(), deletedImageId);
-        verify(imageRepository, times(1)).existsById(image.getId());
-        verify(imageRepository, times(1)).deleteById(image.getId());
+        verify(imageRepository, times(1)).findById(image.getId());
+        verify(imageRepository, times(1)).delete(image);
     }
 
     @Test
     void deleteIfImageNotExistTest() {
         //Init
-        when(imageRepository.existsById(image.getId())).thenReturn(false);
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(ImageNotFoundException.class, () -> imageService.delete(image.getId()));
-        verify(imageRepository, times(1)).existsById(image.getId());
-        verify(imageRepository, times(0)).deleteById(image.getId());
+        verify(imageRepository, times(1)).findById(image.getId());
+        verify(imageRepository, times(0)).delete(image);
+    }
+
+    @Test
+    void getByIdsTest() {
+        //Init
+        Image secondImage = new Image(UUID.randomUUID(), "TEST_2", car);
+        UUID missingImageId = UUID.randomUUID();
+        when(imageRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(image, secondImage));
+
+        //When
+        MultiGetResult<Image> result = imageService.getByIds(
+                Arrays.asList(secondImage.getId(), missingImageId, image.getId()));
+
+        //Then
+        assertEquals(Arrays.asList(secondImage, image), result.getFound());
+        assertEquals(Collections.singletonList(missingImageId), result.getMissing());
+        verify(imageRepository, times(1)).findAllById(anyIterable());
+        verify(imageRepository, times(0)).findById(image.getId());
+    }
+
+    @Test
+    void createAllTest() {
+        //Init
+        when(imageRepository.save(image)).thenReturn(image);
+
+        //When
+        List<BatchItemResult<Image>> results = imageService.createAll(Arrays.asList(image, null));
+
+        //Then
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(image.getUrl(), results.get(0).getValue().getUrl());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Check your image data.", results.get(1).getError());
+        verify(imageRepository, times(1)).save(image);
+    }
+
+    @Test
+    void updateAllTest() {
+        //Init
+        Image missingImage = new Image(UUID.randomUUID(), "TEST_2", car);
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.ofNullable(image));
+        when(imageRepository.findById(missingImage.getId())).thenReturn(Optional.empty());
+        when(imageRepository.save(image)).thenReturn(image);
+
+        //When
+        List<BatchItemResult<Image>> results = imageService.updateAll(Arrays.asList(image, missingImage));
+
+        //Then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(image.getId(), results.get(0).getValue().getId());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Image not exists.", results.get(1).getError());
+        verify(imageRepository, times(1)).findAllById(anyIterable());
+        verify(imageRepository, times(1)).save(image);
+        verify(imageRepository, times(0)).save(missingImage);
+    }
+
+    @Test
+    void deleteAllTest() {
+        //Init
+        UUID missingImageId = UUID.randomUUID();
+        when(imageRepository.findById(image.getId())).thenReturn(Optional.ofNullable(image));
+        when(imageRepository.findById(missingImageId)).thenReturn(Optional.empty());
+
+        //When
+        List<BatchItemResult<UUID>> results = imageService.deleteAll(Arrays.asList(image.getId(), missingImageId));
+
+        //Then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(image.getId(), results.get(0).getValue());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Image not exists.", results.get(1).getError());
+        verify(imageRepository, times(1)).delete(image);
+    }
+
+    @Test
+    void uploadOutsideTransactionTest() throws ImageCreationException {
+        //Init
+        AtomicBoolean readInTransaction = new AtomicBoolean();
+        InputStream content = new ByteArrayInputStream(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(final byte[] bytes, final int offset, final int length) {
+                readInTransaction.compareAndSet(false, TransactionSynchronizationManager.isActualTransactionActive());
+                return super.read(bytes, offset, length);
+            }
+        };
+        when(imageRepository.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //When
+        Image uploadedImage = imageService.upload(content, car);
+
+        //Then
+        assertFalse(readInTransaction.get(), "Content is streamed inside transaction");
+        assertTrue(imageStorage.hashOf(uploadedImage.getUrl()).isPresent());
+        verify(imageRepository, times(1)).save(any(Image.class));
+    }
+
+    @Test
+    void uploadIfSaveFailedTest() {
+        //Init
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        when(imageRepository.save(any(Image.class))).thenThrow(new IllegalStateException("Database is down"));
+
+        //When
+        assertThrows(IllegalStateException.class,
+                () -> imageService.upload(new ByteArrayInputStream(content), car));
+
+        //Then
+        assertTrue(deferredDeletes().stream().anyMatch(hash -> Files.exists(imageStorage.pathOf(hash))),
+                "Stored content is not released");
+    }
+
+    @Test
+    void sweepDeferredDeletesTest() throws IOException {
+        //Init
+        String referencedHash = imageStorage.store(new ByteArrayInputStream(
+                UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)));
+        String freeHash = imageStorage.store(new ByteArrayInputStream(
+                UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)));
+        assertFalse(imageStorage.delete(referencedHash), "Content is deleted during grace");
+        assertFalse(imageStorage.delete(freeHash), "Content is deleted during grace");
+        when(imageQueries.countByUrl(imageStorage.urlOf(referencedHash))).thenReturn(1L);
+        when(imageQueries.countByUrl(imageStorage.urlOf(freeHash))).thenReturn(0L);
+
+        //When
+        imageService.sweepDeferredDeletes();
+        List<String> deferredInGrace = deferredDeletes();
+        Files.setLastModifiedTime(imageStorage.pathOf(freeHash),
+                FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        imageService.sweepDeferredDeletes();
+
+        //Then
+        assertFalse(deferredInGrace.contains(referencedHash), "Delete of referenced content is not cancelled");
+        assertTrue(deferredInGrace.contains(freeHash), "Content is deleted during grace");
+        assertTrue(Files.exists(imageStorage.pathOf(referencedHash)));
+        assertFalse(Files.exists(imageStorage.pathOf(freeHash)), "Content is not deleted after grace");
+        assertFalse(deferredDeletes().contains(freeHash));
+        Files.delete(imageStorage.pathOf(referencedHash));
+    }
+
+    private List<String> deferredDeletes() {
+        try {
+            return imageStorage.deferredDeletes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
\ No newline at end of file
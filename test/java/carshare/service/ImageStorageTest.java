@@ -0,0 +1,104 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageStorageTest {
+
+    @TempDir
+    Path root;
+
+    private ImageStorage storage(final Duration deleteGrace) {
+        return new ImageStorage(root.toString(), "/images/blobs/", DataSize.ofKilobytes(1), deleteGrace);
+    }
+
+    @Test
+    void storeSameContentOnceTest() throws IOException {
+        //Init
+        ImageStorage storage = storage(Duration.ZERO);
+        byte[] content = "TEST".getBytes(StandardCharsets.UTF_8);
+
+        //When
+        String firstHash = storage.store(new ByteArrayInputStream(content));
+        String secondHash = storage.store(new ByteArrayInputStream(content));
+
+        //Then
+        assertEquals("94ee059335e587e501cc4bf90613e0814f00a7b08bc7c648fd865a2af6a22cc2", firstHash);
+        assertEquals(firstHash, secondHash);
+        assertArrayEquals(content, Files.readAllBytes(storage.pathOf(firstHash)));
+        assertEquals(Optional.of(firstHash), storage.hashOf(storage.urlOf(firstHash)));
+    }
+
+    @Test
+    void storeTooBigContentTest() {
+        //Init
+        ImageStorage storage = storage(Duration.ZERO);
+
+        //Then
+        assertThrows(IOException.class, () -> storage.store(new ByteArrayInputStream(new byte[2048])));
+    }
+
+    @Test
+    void deleteAfterGraceTest() throws IOException {
+        //Init
+        ImageStorage storage = storage(Duration.ZERO);
+        String hash = storage.store(new ByteArrayInputStream("TEST".getBytes(StandardCharsets.UTF_8)));
+
+        //When
+        storage.delete(hash);
+
+        //Then
+        assertFalse(Files.exists(storage.pathOf(hash)));
+    }
+
+    @Test
+    void keepDuringGraceTest() throws IOException {
+        //Init
+        ImageStorage storage = storage(Duration.ofMinutes(10));
+        String hash = storage.store(new ByteArrayInputStream("TEST".getBytes(StandardCharsets.UTF_8)));
+
+        //When
+        storage.delete(hash);
+
+        //Then
+        assertTrue(Files.exists(storage.pathOf(hash)));
+    }
+
+    @Test
+    void deferredDeleteTest() throws IOException {
+        //Init
+        ImageStorage storage = storage(Duration.ofMinutes(10));
+        String hash = storage.store(new ByteArrayInputStream("TEST".getBytes(StandardCharsets.UTF_8)));
+
+        //When
+        boolean deletedInGrace = storage.delete(hash);
+        List<String> deferredInGrace = storage.deferredDeletes();
+        Files.setLastModifiedTime(storage.pathOf(hash), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        boolean deletedAfterGrace = storage.delete(hash);
+
+        //Then
+        assertFalse(deletedInGrace);
+        assertEquals(Collections.singletonList(hash), deferredInGrace);
+        assertTrue(deletedAfterGrace);
+        assertFalse(Files.exists(storage.pathOf(hash)));
+        assertTrue(storage.deferredDeletes().isEmpty(), "Deferred delete is not forgotten");
+    }
+
+    @Test
+    void hashOfForeignUrlTest() {
+        assertFalse(storage(Duration.ZERO).hashOf("https://example.com/car.jpg").isPresent());
+    }
+}
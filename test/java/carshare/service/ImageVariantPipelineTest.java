@@ -0,0 +1,168 @@
+package carshare.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantPipelineTest {
+
+    @TempDir
+    Path root;
+
+    private ImageStorage storage;
+    private ImageVariantPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        storage = new ImageStorage(root.toString(), "/images/blobs/", DataSize.ofMegabytes(1), Duration.ZERO);
+        pipeline = new ImageVariantPipeline(storage, new int[]{160, 480}, 1, 16, 1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    private String storeImage(final int width, final int height) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", content);
+        return storage.store(new ByteArrayInputStream(content.toByteArray()));
+    }
+
+    @Test
+    void generateTest() throws IOException {
+        //Init
+        String hash = storeImage(400, 200);
+
+        //When
+        pipeline.generate(hash);
+
+        //Then
+        BufferedImage variant = ImageIO.read(storage.variantPathOf(hash, 160).toFile());
+        assertEquals(160, variant.getWidth());
+        assertEquals(80, variant.getHeight());
+        assertFalse(Files.exists(storage.variantPathOf(hash, 480)), "Variant wider than original is generated");
+        assertFalse(Files.exists(root.resolve("pending").resolve(hash)), "Pending marker is not removed");
+    }
+
+    @Test
+    void variantUrlTest() throws IOException {
+        //Init
+        String hash = storeImage(400, 200);
+        Optional<String> notReadyUrl = pipeline.variantUrl(storage.urlOf(hash), 300);
+        pipeline.generate(hash);
+
+        //When
+        Optional<String> fittingUrl = pipeline.variantUrl(storage.urlOf(hash), 300);
+        Optional<String> smallestUrl = pipeline.variantUrl(storage.urlOf(hash), 100);
+
+        //Then
+        assertFalse(notReadyUrl.isPresent());
+        assertEquals(Optional.of(storage.urlOf(hash, 160)), fittingUrl);
+        assertEquals(Optional.of(storage.urlOf(hash, 160)), smallestUrl);
+    }
+
+    @Test
+    void deleteWithVariantsTest() throws IOException {
+        //Init
+        String hash = storeImage(400, 200);
+        pipeline.generate(hash);
+
+        //When
+        storage.delete(hash);
+
+        //Then
+        assertFalse(Files.exists(storage.pathOf(hash)));
+        assertFalse(Files.exists(storage.variantPathOf(hash, 160)));
+    }
+
+    @Test
+    void tooManyPixelsTest() throws IOException {
+        //Init
+        ImageVariantPipeline limitedPipeline = new ImageVariantPipeline(storage, new int[]{160}, 1, 16, 10_000);
+        String hash = storeImage(400, 200);
+
+        //When
+        limitedPipeline.generate(hash);
+        limitedPipeline.shutdown();
+
+        //Then
+        assertFalse(Files.exists(storage.variantPathOf(hash, 160)), "Image over pixel limit is decoded");
+    }
+
+    @Test
+    void submitTest() throws Exception {
+        //Init
+        String hash = storeImage(400, 200);
+
+        //When
+        pipeline.submit(hash);
+
+        //Then
+        awaitNoPending();
+        assertTrue(Files.exists(storage.variantPathOf(hash, 160)));
+    }
+
+    @Test
+    void resumePendingTest() throws Exception {
+        //Init
+        String hash = storeImage(400, 200);
+        Files.createFile(storage.workDir("pending").resolve(hash));
+
+        //When
+        pipeline.resumePending();
+
+        //Then
+        awaitNoPending();
+        assertTrue(Files.exists(storage.variantPathOf(hash, 160)));
+    }
+
+    @Test
+    void submitToFullQueueTest() throws Exception {
+        //Init
+        pipeline.shutdown();
+        pipeline = new ImageVariantPipeline(storage, new int[]{160}, 1, 1, 1_000_000);
+        List<String> hashes = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            hashes.add(storeImage(400 + i, 200));
+        }
+
+        //When
+        hashes.forEach(pipeline::submit);
+
+        //Then
+        awaitNoPending();
+        for (String hash : hashes) {
+            assertTrue(Files.exists(storage.variantPathOf(hash, 160)), "Dropped job is not retried");
+        }
+    }
+
+    private void awaitNoPending() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            try (Stream<Path> markers = Files.list(storage.workDir("pending"))) {
+                if (!markers.findAny().isPresent()) {
+                    return;
+                }
+            }
+            Thread.sleep(20);
+        }
+        fail("Pending jobs are not finished");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JdbcInstrumentationTest {
+
+    @Test
+    void equalsTest() throws Exception {
+        //Init
+        Connection connection = mock(Connection.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        DataSource instrumented = JdbcInstrumentation.instrument(dataSource);
+
+        //When
+        Connection first = instrumented.getConnection();
+        Connection second = instrumented.getConnection();
+        Set<Connection> connections = new HashSet<>();
+        connections.add(first);
+        connections.add(first);
+        connections.add(second);
+
+        //Then
+        assertEquals(first, first);
+        assertNotEquals(first, second);
+        assertNotEquals(first, connection);
+        assertEquals(System.identityHashCode(first), first.hashCode());
+        assertEquals(2, connections.size());
+        assertTrue(connections.remove(first));
+        verifyNoInteractions(connection);
+    }
+
+    @Test
+    void countTest() throws Exception {
+        //Init
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, false);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement("select id from car")).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        JdbcCallStats stats = JdbcCallStats.current();
+        long statements = stats.getStatements();
+        long rows = stats.getRows();
+
+        //When
+        ResultSet result = JdbcInstrumentation.instrument(dataSource).getConnection()
+                .prepareStatement("select id from car").executeQuery();
+        while (result.next()) {
+            assertNotSame(resultSet, result);
+        }
+
+        //Then
+        assertEquals(1, stats.getStatements() - statements);
+        assertEquals(2, stats.getRows() - rows);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package carshare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KeysetPagerTest {
+
+    private EntityManager entityManager;
+    private TypedQuery<UUID> query;
+    private KeysetPager keysetPager;
+    private List<UUID> ids;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        query = mock(TypedQuery.class);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        doReturn(query).when(entityManager).createQuery(any(CriteriaQuery.class));
+        keysetPager = new KeysetPager(entityManager);
+        ids = Arrays.asList(new UUID(0, 1), new UUID(0, 2), new UUID(0, 3), new UUID(0, 4));
+    }
+
+    @Test
+    void pageTest() {
+        //Init
+        when(query.getResultList()).thenReturn(ids.subList(0, 3));
+
+        //When
+        KeysetPage<UUID> page = keysetPager.page(UUID.class, null, 2, Function.identity());
+
+        //Then
+        assertEquals(ids.subList(0, 2), page.getItems());
+        assertEquals(ids.get(1), page.getNextCursor());
+        assertTrue(page.hasNext());
+        verify(query).setMaxResults(3);
+    }
+
+    @Test
+    void lastPageTest() {
+        //Init
+        when(query.getResultList()).thenReturn(ids.subList(2, 4));
+
+        //When
+        KeysetPage<UUID> page = keysetPager.page(UUID.class, ids.get(1), 2, Function.identity());
+
+        //Then
+        assertEquals(ids.subList(2, 4), page.getItems());
+        assertNull(page.getNextCursor());
+        assertFalse(page.hasNext());
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        verify(builder).greaterThan(any(Expression.class), eq(ids.get(1)));
+    }
+
+    @Test
+    void maxPageSizeTest() {
+        //Init
+        when(query.getResultList()).thenReturn(ids);
+
+        //When
+        keysetPager.page(UUID.class, null, 100000, Function.identity());
+        keysetPager.page(UUID.class, null, 0, Function.identity());
+
+        //Then
+        verify(query).setMaxResults(KeysetPager.MAX_PAGE_SIZE + 1);
+        verify(query).setMaxResults(2);
+    }
+
+    @Test
+    void streamTest() {
+        //Init
+        when(query.getResultList()).thenReturn(ids.subList(0, 3), ids.subList(2, 4));
+
+        //When
+        List<UUID> streamed = keysetPager.stream(UUID.class, 2, Function.identity()).collect(Collectors.toList());
+
+        //Then
+        assertEquals(ids, streamed);
+        verify(entityManager).detach(ids.get(0));
+        verify(entityManager).detach(ids.get(1));
+        verify(entityManager, never()).detach(ids.get(2));
+        verify(entityManager.getCriteriaBuilder()).greaterThan(any(Expression.class), eq(ids.get(1)));
+        verify(query, times(2)).getResultList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordCostPolicyTest {
+
+    @Test
+    void calibratedHashNotNeedsRehashTest() {
+        //Init
+        PasswordCostPolicy policy = new PasswordCostPolicy(new BCryptPasswordEncoder(), true, Duration.ofMillis(1));
+
+        //When
+        String encodedPassword = policy.encode("test_password");
+
+        //Then
+        assertTrue(policy.getTargetCost() >= 10);
+        assertFalse(policy.needsRehash(encodedPassword));
+        assertEquals(1, policy.getEncodeTimings().getCount());
+    }
+
+    @Test
+    void lowerCostNeedsRehashTest() {
+        //Init
+        PasswordCostPolicy policy = new PasswordCostPolicy(new BCryptPasswordEncoder(4), true, Duration.ofMillis(50));
+
+        //When
+        String lowerCost = new BCryptPasswordEncoder(policy.getTargetCost() - 1).encode("test_password");
+        String higherCost = new BCryptPasswordEncoder(policy.getTargetCost() + 1).encode("test_password");
+
+        //Then
+        assertTrue(policy.getTargetCost() > 4);
+        assertTrue(policy.needsRehash(lowerCost));
+        assertFalse(policy.needsRehash(higherCost));
+    }
+
+    @Test
+    void notBcryptEncoderTest() {
+        //Init
+        PasswordCostPolicy policy = new PasswordCostPolicy(NoOpPasswordEncoder.getInstance(), true,
+                Duration.ofMillis(50));
+
+        //Then
+        assertEquals(0, policy.getTargetCost());
+        assertEquals("test_password", policy.encode("test_password"));
+        assertFalse(policy.needsRehash("$2a$04$abcdefghijklmnopqrstuv"));
+    }
+}
@@ -0,0 +1,147 @@
+package carshare.service;
+
+import carshare.database.entity.Category;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read/write splitting against two embedded databases, replica has the same schema but its own rows,
+ * so name of returned category shows which database served the read.
+ * Replica schema is copied from primary as soon as Hibernate has created it, before beans read on startup.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaDataSourceConfigurationTest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "carshare.datasource.replica-urls=" + ReplicaDataSourceConfigurationTest.REPLICA_URL,
+        "carshare.datasource.staleness-window=1m",
+        "carshare.search.rebuild-on-startup=false",
+        "carshare.search.full-text.dir=${java.io.tmpdir}/carshare-replica/search-index",
+        "carshare.uniqueness.snapshot=${java.io.tmpdir}/carshare-replica/uniqueness.bloom"
+})
+class ReplicaDataSourceConfigurationTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:carshare-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:carshare-replica;DB_CLOSE_DELAY=-1";
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @TestConfiguration
+    static class ReplicaSchemaConfiguration {
+
+        @Bean
+        static BeanPostProcessor replicaSchemaCopier() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                    if (bean instanceof EntityManagerFactory) {
+                        JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+                        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+                        replica.execute("drop all objects");
+                        for (String statement : primary.queryForList("script nodata", String.class)) {
+                            replica.execute(statement);
+                        }
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        primary.update("delete from category");
+        replica.update("delete from category");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Category createOnBothDatabases() {
+        Category category = categoryService.create(new Category(UUID.randomUUID(), "PRIMARY", "TEST"));
+        replica.update("insert into category (id, name, description) values (?, ?, ?)",
+                category.getId(), "REPLICA", "TEST");
+        return category;
+    }
+
+    @Test
+    void readFromReplicaTest() {
+        //Init
+        Category category = createOnBothDatabases();
+
+        //When
+        Category found = categoryService.getById(category.getId());
+
+        //Then
+        assertEquals("REPLICA", found.getName());
+    }
+
+    @Test
+    void readYourWritesTest() {
+        //Init
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "USER"));
+        Category category = createOnBothDatabases();
+
+        //When
+        Category found = categoryService.getById(category.getId());
+
+        //Then
+        assertEquals("PRIMARY", found.getName());
+    }
+
+    @Test
+    void writeAfterReadInOpenSessionTest() {
+        //Init
+        Category category = createOnBothDatabases();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+
+        //When
+        Category created;
+        try {
+            assertEquals("REPLICA", categoryService.getById(category.getId()).getName());
+            created = categoryService.create(new Category(UUID.randomUUID(), "CREATED", "TEST"));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+
+        //Then
+        assertEquals(1, primary.queryForObject("select count(*) from category where id = ?", Integer.class,
+                created.getId()));
+        assertEquals(0, replica.queryForObject("select count(*) from category where id = ?", Integer.class,
+                created.getId()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+package carshare.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource firstReplica;
+    private DataSource secondReplica;
+    private Connection primaryConnection;
+    private Connection firstConnection;
+    private Connection secondConnection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        firstReplica = mock(DataSource.class);
+        secondReplica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        firstConnection = mock(Connection.class);
+        secondConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstConnection);
+        when(secondReplica.getConnection()).thenReturn(secondConnection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    private ReplicaRoutingDataSource routing(final Duration stalenessWindow) {
+        return new ReplicaRoutingDataSource(primary, Arrays.asList(firstReplica, secondReplica),
+                stalenessWindow, Duration.ofMinutes(1));
+    }
+
+    private static void transaction(final boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    @Test
+    void readOnlyRoundRobinTest() throws SQLException {
+        //Init
+        ReplicaRoutingDataSource dataSource = routing(Duration.ZERO);
+        transaction(true);
+
+        //Then
+        assertSame(firstConnection, dataSource.getConnection());
+        assertSame(secondConnection, dataSource.getConnection());
+        assertSame(firstConnection, dataSource.getConnection());
+        assertEquals(3, dataSource.getReplicaReads());
+    }
+
+    @Test
+    void writeTest() throws SQLException {
+        //Init
+        ReplicaRoutingDataSource dataSource = routing(Duration.ZERO);
+        transaction(false);
+
+        //Then
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(firstReplica, secondReplica);
+    }
+
+    @Test
+    void readYourWritesTest() throws SQLException {
+        //Init
+        ReplicaRoutingDataSource dataSource = routing(Duration.ofMinutes(1));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "USER"));
+        transaction(false);
+        dataSource.getConnection();
+
+        //When
+        transaction(true);
+        Connection connection = dataSource.getConnection();
+
+        //Then
+        assertSame(primaryConnection, connection);
+        assertEquals(1, dataSource.getStalenessReads());
+    }
+
+    @Test
+    void anonymousWriteTest() throws SQLException {
+        //Init
+        ReplicaRoutingDataSource dataSource = routing(Duration.ofMinutes(1));
+        transaction(false);
+        dataSource.getConnection();
+
+        //When
+        transaction(true);
+        Connection connection = dataSource.getConnection();
+
+        //Then
+        assertSame(firstConnection, connection);
+        assertEquals(0, dataSource.getStalenessReads());
+    }
+
+    @Test
+    void failoverTest() throws SQLException {
+        //Init
+        ReplicaRoutingDataSource dataSource = routing(Duration.ZERO);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("TEST"));
+        when(secondReplica.getConnection()).thenThrow(new IllegalStateException("TEST"));
+        transaction(true);
+
+        //When
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+
+        //Then
+        assertSame(primaryConnection, first);
+        assertSame(primaryConnection, second);
+        assertEquals(2, dataSource.getFailovers());
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+    }
+}
\ No newline at end of file
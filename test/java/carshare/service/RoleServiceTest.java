@@ -10,7 +10,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit4.SpringRunner;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.doNothing;
@@ -63,7 +65,6 @@ class RoleServiceTest {
     @Test
     void getByIdTest() throws RoleNotFoundException {
         //Init
-        when(roleRepository.existsById(role.getId())).thenReturn(true);
         when(roleRepository.findById(role.getId())).thenReturn(Optional.ofNullable(role));
 
         //When
@@ -73,19 +74,19 @@ class RoleServiceTest {
         assertNotNull(foundRoleById);
         assertEquals(role.getName(), foundRoleById.getName());
         assertEquals(role.getDescription(), foundRoleById.getDescription());
-        verify(roleRepository, times(1)).existsById(role.getId());
+        verify(roleRepository, times(0)).existsById(role.getId());
         verify(roleRepository, times(1)).findById(role.getId());
     }
 
     @Test
     void getByIdIfRoleNotExistTest() {
         //Init
-        when(roleRepository.existsById(role.getId())).thenReturn(false);
+        when(roleRepository.findById(role.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(RoleNotFoundException.class, () -> roleService.getById(role.getId()));
-        verify(roleRepository, times(1)).existsById(role.getId());
-        verify(roleRepository, times(0)).findById(role.getId());
+        verify(roleRepository, times(1)).findById(role.getId());
+        verify(roleRepository, times(0)).existsById(role.getId());
     }
 
     @Test
@@ -93,7 +94,7 @@ class RoleServiceTest {
         //Init
         role.setName("TEST_TEST");
         role.setDescription("TEST_TEST");
-        when(roleRepository.existsById(role.getId())).thenReturn(true);
+        when(roleRepository.findById(role.getId())).thenReturn(Optional.ofNullable(role));
         when(roleRepository.save(role)).thenReturn(role);
 
         //When
@@ -103,26 +104,26 @@ class RoleServiceTest {
         assertNotNull(updatedRole);
         assertEquals(role.getName(), updatedRole.getName());
         assertEquals(role.getDescription(), updatedRole.getDescription());
-        verify(roleRepository, times(1)).existsById(role.getId());
+        verify(roleRepository, times(1)).findById(role.getId());
         verify(roleRepository, times(1)).save(role);
     }
 
     @Test
     void updateIfRoleNotExistTest() {
         //Init
-        when(roleRepository.existsById(role.getId())).thenReturn(false);
+        when(roleRepository.findById(role.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(RoleNotFoundException.class, () -> roleService.update(role));
-        verify(roleRepository, times(1)).existsById(role.getId());
+        verify(roleRepository, times(1)).findById(role.getId());
         verify(roleRepository, times(0)).save(role);
     }
 
     @Test
     void deleteTest() throws RoleNotFoundException {
         //Init
-        when(roleRepository.existsById(role.getId())).thenReturn(true);
-        doNothing().when(roleRepository).deleteById(role.getId());
+        when(roleRepository.findById(role.getId())).thenReturn(Optional.ofNullable(role));
+        doNothing().when(roleRepository).delete(role);
 
         //When
         UUID deletedRoleId = roleService.delete(role.getId());
@@ -130,19 +131,50 @@ class RoleServiceTest {
         //Then
         assertNotNull(deletedRoleId, "Car is not deleted.");
         assertEquals(role.getId(), deletedRoleId);
-        verify(roleRepository, times(1)).existsById(role.getId());
-        verify(roleRepository, times(1)).deleteById(role.getId());
+        verify(roleRepository, times(1)).findById(role.getId());
+        verify(roleRepository, times(1)).delete(role);
     }
 
     @Test
     void deleteIfRoleNotExistTest() {
         //Init
-        when(roleRepository.existsById(role.getId())).thenReturn(false);
+        when(roleRepository.findById(role.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(RoleNotFoundException.class, () -> roleService.delete(role.getId()));
-        verify(roleRepository, times(1)).existsById(role.getId());
-        verify(roleRepository, times(0)).deleteById(role.getId());
+        verify(roleRepository, times(1)).findById(role.getId());
+        verify(roleRepository, times(0)).delete(role);
+
+    }
+
+    @Test
+    void getRoleFromCacheTest() {
+        //Init
+        when(roleRepository.findAll()).thenReturn(Collections.singletonList(role));
+        roleService.reloadRoles();
 
+        //When
+        Set<Role> roles = roleService.getRole(role.getName());
+
+        //Then
+        assertEquals(Collections.singleton(role), roles);
+        verify(roleRepository, times(0)).getByName(role.getName());
+    }
+
+    @Test
+    void getRoleAfterCreateTest() {
+        //Init
+        when(roleRepository.findAll()).thenReturn(Collections.emptyList());
+        roleService.reloadRoles();
+        when(roleRepository.save(role)).thenReturn(role);
+        when(roleRepository.findAll()).thenReturn(Collections.singletonList(role));
+
+        //When
+        roleService.create(role);
+        Set<Role> roles = roleService.getRole(role.getName());
+
+        //Then
+        assertEquals(Collections.singleton(role), roles);
+        verify(roleRepository, times(0)).getByName(role.getName());
     }
 }
\ No newline at end of file
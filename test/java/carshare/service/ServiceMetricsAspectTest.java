@@ -0,0 +1,110 @@
+package carshare.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ServiceMetricsAspectTest {
+
+    static class SampleService {
+        public int count() {
+            return 0;
+        }
+    }
+
+    private SimpleMeterRegistry meterRegistry;
+    private ServiceMetricsAspect aspect;
+    private DataSource dataSource;
+    private ProceedingJoinPoint joinPoint;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        aspect = new ServiceMetricsAspect(meterRegistry, false);
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        dataSource = JdbcInstrumentation.instrument(target);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(SampleService.class.getMethod("count"));
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new SampleService());
+    }
+
+    @Test
+    void measureTest() throws Throwable {
+        //Init
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            int rows = 0;
+            try (Connection connection = dataSource.getConnection()) {
+                ResultSet resultSet = connection.prepareStatement("select id from car").executeQuery();
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+            return rows;
+        });
+
+        //When
+        Object result = aspect.measure(joinPoint);
+
+        //Then
+        assertEquals(3, result);
+        assertEquals(1, meterRegistry.get("carshare.service.duration")
+                .tags("service", "SampleService", "method", "count").timer().count());
+        assertEquals(1, meterRegistry.get("carshare.service.statements").summary().totalAmount());
+        assertEquals(3, meterRegistry.get("carshare.service.rows").summary().totalAmount());
+        assertTrue(meterRegistry.find("carshare.service.errors").counters().isEmpty());
+    }
+
+    @Test
+    void measureFailureTest() throws Throwable {
+        //Init
+        when(joinPoint.proceed()).thenThrow(new SQLException("TEST"));
+
+        //When
+        assertThrows(SQLException.class, () -> aspect.measure(joinPoint));
+
+        //Then
+        assertEquals(1, meterRegistry.get("carshare.service.errors")
+                .tags("exception", "SQLException").counter().count());
+        assertEquals(1, meterRegistry.get("carshare.service.duration").timer().count());
+    }
+
+    @Test
+    void boundedBucketsTest() throws Throwable {
+        //Init
+        ServiceMetricsAspect histogramAspect = new ServiceMetricsAspect(meterRegistry, true);
+        when(joinPoint.proceed()).thenReturn(0);
+
+        //When
+        histogramAspect.measure(joinPoint);
+
+        //Then
+        assertEquals(8, meterRegistry.get("carshare.service.statements").summary()
+                .takeSnapshot().histogramCounts().length);
+        assertEquals(6, meterRegistry.get("carshare.service.rows").summary()
+                .takeSnapshot().histogramCounts().length);
+    }
+
+    @Test
+    void instrumentOnceTest() {
+        assertSame(dataSource, JdbcInstrumentation.instrument(dataSource));
+        assertSame(dataSource, new JdbcInstrumentation().postProcessAfterInitialization(dataSource, "dataSource"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,383 @@
+package carshare.service;
+
+import carshare.database.entity.Car;
+import carshare.database.entity.Category;
+import carshare.database.entity.DriverLicense;
+import carshare.database.entity.Image;
+import carshare.database.entity.Role;
+import carshare.database.entity.User;
+import carshare.database.repository.CarRepository;
+import carshare.database.repository.CategoryRepository;
+import carshare.database.repository.DriverLicenseRepository;
+import carshare.database.repository.ImageRepository;
+import carshare.database.repository.RoleRepository;
+import carshare.database.repository.UserRepository;
+import carshare.enums.Sex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * SQL budgets of service methods against embedded database.
+ * There is no test transaction: every service call runs and commits its own transactions, as it does
+ * for controllers, and fixture is deleted after every test. Fixture is the same for every budget:
+ * one role, one verified owner, three cars with two images each, one category and one driver license.
+ * Lazy associations which callers use are touched after the call, so association which plan does not fetch
+ * fails the test instead of being loaded by N+1 selects.
+ * Budgets are counts measured on this fixture, see SqlBudget to record them again.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "carshare.search.rebuild-on-startup=false",
+        "carshare.search.full-text.dir=${java.io.tmpdir}/carshare-sql-budget/search-index",
+        "carshare.uniqueness.snapshot=${java.io.tmpdir}/carshare-sql-budget/uniqueness.bloom",
+        "carshare.images.storage-dir=${java.io.tmpdir}/carshare-sql-budget/images"
+})
+@AutoConfigureTestDatabase
+class ServiceSqlBudgetTest {
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CarService carService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private DriverLicenseService driverLicenseService;
+    @Autowired
+    private RoleService roleService;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CarRepository carRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private DriverLicenseRepository driverLicenseRepository;
+
+    private SqlBudget budget;
+    private Role role;
+    private User owner;
+    private List<Car> cars;
+    private List<Image> images;
+    private Category category;
+    private DriverLicense driverLicense;
+
+    @BeforeEach
+    void setUp() {
+        budget = new SqlBudget(entityManagerFactory);
+        when(passwordEncoder.encode(any())).thenReturn("encoded_password");
+        when(passwordEncoder.matches(any(), any())).thenReturn(true);
+        role = roleRepository.save(new Role(UUID.randomUUID(), "USER", "USER"));
+        roleService.reloadRoles();
+        User user = newUser(true);
+        user.setRoles(Collections.singleton(role));
+        owner = userRepository.save(user);
+        cars = new ArrayList<>();
+        images = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Car car = carRepository.save(newCar(owner));
+            cars.add(car);
+            images.add(imageRepository.save(new Image(UUID.randomUUID(), "url_" + i + "_1", car)));
+            images.add(imageRepository.save(new Image(UUID.randomUUID(), "url_" + i + "_2", car)));
+        }
+        category = categoryRepository.save(new Category(UUID.randomUUID(), "B2", "Regular"));
+        driverLicense = driverLicenseRepository.save(new DriverLicense(UUID.randomUUID(), "TEST",
+                LocalDateTime.now(), LocalDateTime.now(), Collections.singleton(category), owner));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        driverLicenseRepository.deleteAll();
+        imageRepository.deleteAll();
+        carRepository.deleteAll();
+        userRepository.deleteAll();
+        categoryRepository.deleteAll();
+        roleRepository.deleteAll();
+        roleService.reloadRoles();
+    }
+
+    @Test
+    void carReadBudgetTest() throws Exception {
+        UUID carId = cars.get(0).getId();
+        List<UUID> carIds = Arrays.asList(carId, cars.get(1).getId(), cars.get(2).getId());
+        budget.assertWithin("CarService.getById", 1, 1, () -> carService.getById(carId));
+        budget.assertWithin("CarService.getById(CAR_DETAIL)", 1, 2, () -> {
+            Car car = carService.getById(carId, FetchPlan.CAR_DETAIL);
+            return car.getImages().size() + car.getUser().getLogin().length();
+        });
+        budget.assertWithin("CarService.getByIds", 1, 3, () -> carService.getByIds(carIds));
+        budget.assertWithin("CarService.getPage(CAR_CARD)", 2, 9, () -> {
+            KeysetPage<Car> page = carService.getPage(null, 100, FetchPlan.CAR_CARD);
+            page.getItems().forEach(car -> car.getImages().size());
+            return page;
+        });
+        budget.assertWithin("CarService.getAll", 1, 3, () -> carService.getAll());
+        budget.assertWithin("CarService.getAll(CAR_CARD)", 1, 6, () -> {
+            List<Car> all = carService.getAll(FetchPlan.CAR_CARD);
+            all.forEach(car -> car.getImages().size());
+            return all;
+        });
+        budget.assertWithin("CarService.getNewestPage", 1, 3, () -> carService.getNewestPage(null, 100));
+    }
+
+    @Test
+    void carSearchBudgetTest() throws Exception {
+        //Init
+        String word = "budget" + UUID.randomUUID().toString().replace("-", "");
+        for (int i = 0; i < 3; i++) {
+            Car car = newCar(owner);
+            car.setBrand(word);
+            car.setDescription("Car with " + word);
+            carService.create(car);
+        }
+
+        //When
+        KeysetPage<Car> found = budget.assertWithin("CarService.search", 1, 3, () -> {
+            KeysetPage<Car> page = carService.search(
+                    Collections.singletonList(CarSearchFilter.exact(CarSearchField.BRAND, word)), null, 100);
+            page.getItems().forEach(car -> car.getImages().size());
+            return page;
+        });
+        FullTextPage<Car> matched = budget.assertWithin("CarService.searchDescriptions", 1, 3,
+                () -> carService.searchDescriptions(word, 0, 100));
+
+        //Then
+        assertEquals(3, found.getItems().size());
+        assertEquals(3, matched.getItems().size());
+    }
+
+    @Test
+    void carWriteBudgetTest() throws Exception {
+        //Init
+        Car changed = cars.get(0);
+        changed.setNumber("AA" + UUID.randomUUID().toString().substring(0, 6));
+        List<Car> newCars = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            newCars.add(newCar(owner));
+        }
+
+        //When
+        List<BatchItemResult<Car>> created =
+                budget.assertWithin("CarService.createAll", 7, 1, () -> carService.createAll(newCars));
+
+        //Then
+        created.forEach(result -> assertTrue(result.isSuccess()));
+        budget.assertWithin("CarService.create", 3, 1, () -> carService.create(newCar(owner)));
+        budget.assertWithin("CarService.update", 2, 1, () -> carService.update(changed));
+        budget.assertWithin("CarService.delete", 5, 3, () -> carService.delete(cars.get(1).getId()));
+    }
+
+    @Test
+    void carBatchBudgetTest() throws Exception {
+        //Init
+        List<Car> changed = Arrays.asList(cars.get(0), cars.get(1));
+        changed.forEach(car -> car.setColor("CHANGED"));
+        List<UUID> removed = Arrays.asList(cars.get(1).getId(), cars.get(2).getId());
+
+        //When
+        List<BatchItemResult<Car>> updated =
+                budget.assertWithin("CarService.updateAll", 2, 2, () -> carService.updateAll(changed));
+        List<BatchItemResult<UUID>> deleted =
+                budget.assertWithin("CarService.deleteAll", 7, 6, () -> carService.deleteAll(removed));
+
+        //Then
+        updated.forEach(result -> assertTrue(result.isSuccess()));
+        deleted.forEach(result -> assertTrue(result.isSuccess()));
+    }
+
+    @Test
+    void userReadBudgetTest() throws Exception {
+        UUID userId = owner.getId();
+        budget.assertWithin("UserService.getById", 1, 1, () -> userService.getById(userId));
+        budget.assertWithin("UserService.getById(USER_PROFILE)", 1, 3, () -> {
+            User user = userService.getById(userId, FetchPlan.USER_PROFILE);
+            return user.getRoles().size() + user.getCars().size();
+        });
+        budget.assertWithin("UserService.getByIds", 1, 1,
+                () -> userService.getByIds(Arrays.asList(userId, UUID.randomUUID())));
+        budget.assertWithin("UserService.getPage(USER_PROFILE)", 2, 4, () -> {
+            KeysetPage<User> page = userService.getPage(null, 100, FetchPlan.USER_PROFILE);
+            page.getItems().forEach(user -> user.getRoles().size());
+            return page;
+        });
+        budget.assertWithin("UserService.getAll(AUTH_PRINCIPAL)", 1, 1, () -> {
+            List<User> all = userService.getAll(FetchPlan.AUTH_PRINCIPAL);
+            all.forEach(user -> user.getRoles().size());
+            return all;
+        });
+        budget.assertWithin("UserService.stream", 1, 1, () -> {
+            try (Stream<User> users = userService.stream(100)) {
+                return users.count();
+            }
+        });
+        budget.assertWithin("UserService.isVerified", 1, 1, () -> {
+            userService.isVerified(userId);
+            return userService.isVerified(userId);
+        });
+        budget.assertWithin("UserService.login", 1, 1,
+                () -> userService.login(owner.getLogin(), "test_password"));
+    }
+
+    @Test
+    void userWriteBudgetTest() throws Exception {
+        //Init
+        User removable = userRepository.save(newUser(false));
+        owner.setEmail("changed_" + owner.getEmail());
+        List<User> newUsers = Arrays.asList(newUser(false), newUser(false), newUser(false));
+
+        //When
+        User created = budget.assertWithin("UserService.create", 4, 1, () -> userService.create(newUser(false)));
+        User createdAsync = budget.assertWithin("UserService.createAsync", 4,
+                () -> userService.createAsync(newUser(false)).join());
+        List<BatchItemResult<User>> createdAll =
+                budget.assertWithin("UserService.createAll", 6, 1, () -> userService.createAll(newUsers));
+
+        //Then
+        assertNotNull(created.getId());
+        assertNotNull(createdAsync.getId());
+        createdAll.forEach(result -> assertTrue(result.isSuccess()));
+        budget.assertWithin("UserService.update", 3, 2, () -> userService.update(owner));
+        budget.assertWithin("UserService.delete", 3, 1, () -> userService.delete(removable.getId()));
+    }
+
+    @Test
+    void imageBudgetTest() throws Exception {
+        //Init
+        Image changed = images.get(0);
+        changed.setUrl("url_changed");
+        List<Image> newImages = Arrays.asList(new Image(UUID.randomUUID(), "url_new_1", cars.get(2)),
+                new Image(UUID.randomUUID(), "url_new_2", cars.get(2)));
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+
+        //Then
+        budget.assertWithin("ImageService.getById", 1, 1, () -> imageService.getById(images.get(1).getId()));
+        budget.assertWithin("ImageService.getById(width)", 1, 1,
+                () -> imageService.getById(images.get(1).getId(), 480));
+        budget.assertWithin("ImageService.getByIds", 1, 2,
+                () -> imageService.getByIds(Arrays.asList(images.get(1).getId(), images.get(2).getId())));
+        budget.assertWithin("ImageService.getPage", 1, 6, () -> imageService.getPage(null, 100));
+        budget.assertWithin("ImageService.getNewestPage", 1, 6, () -> imageService.getNewestPage(null, 100));
+        budget.assertWithin("ImageService.upload", 2, 1,
+                () -> imageService.upload(new ByteArrayInputStream(content), cars.get(2)));
+        budget.assertWithin("ImageService.update", 2, 1, () -> imageService.update(changed));
+        budget.assertWithin("ImageService.createAll", 3, 0, () -> imageService.createAll(newImages));
+        budget.assertWithin("ImageService.delete", 2, 1, () -> imageService.delete(images.get(3).getId()));
+        budget.assertWithin("ImageService.deleteAll", 2, 2,
+                () -> imageService.deleteAll(Arrays.asList(images.get(4).getId(), images.get(5).getId())));
+    }
+
+    @Test
+    void categoryBudgetTest() throws Exception {
+        //Init
+        Category removable = categoryRepository.save(new Category(UUID.randomUUID(), "C", "Truck"));
+        category.setDescription("Regular car");
+        String word = "budget" + UUID.randomUUID().toString().replace("-", "");
+
+        //Then
+        budget.assertWithin("CategoryService.create", 2, 0,
+                () -> categoryService.create(new Category(UUID.randomUUID(), "A", "Motorcycle " + word)));
+        budget.assertWithin("CategoryService.getById", 1, 1, () -> categoryService.getById(category.getId()));
+        budget.assertWithin("CategoryService.getByIds", 1, 2,
+                () -> categoryService.getByIds(Arrays.asList(category.getId(), removable.getId())));
+        budget.assertWithin("CategoryService.getAll", 1, 3, () -> categoryService.getAll());
+        budget.assertWithin("CategoryService.getPage", 1, 3, () -> categoryService.getPage(null, 100));
+        FullTextPage<Category> matched = budget.assertWithin("CategoryService.searchDescriptions", 1, 1,
+                () -> categoryService.searchDescriptions(word, 0, 100));
+        budget.assertWithin("CategoryService.update", 2, 1, () -> categoryService.update(category));
+        budget.assertWithin("CategoryService.delete", 2, 1, () -> categoryService.delete(removable.getId()));
+        assertEquals(1, matched.getItems().size());
+    }
+
+    @Test
+    void driverLicenseBudgetTest() throws Exception {
+        //Init
+        driverLicense.setNumber("CHANGED");
+        DriverLicense newDriverLicense = new DriverLicense(UUID.randomUUID(), "NEW", LocalDateTime.now(),
+                LocalDateTime.now(), Collections.singleton(category), owner);
+
+        //Then
+        budget.assertWithin("DriverLicenseService.create", 4, 1,
+                () -> driverLicenseService.create(newDriverLicense));
+        budget.assertWithin("DriverLicenseService.getById", 1, 1,
+                () -> driverLicenseService.getById(driverLicense.getId()));
+        budget.assertWithin("DriverLicenseService.getByIds", 1, 2,
+                () -> driverLicenseService.getByIds(Arrays.asList(driverLicense.getId(), newDriverLicense.getId())));
+        budget.assertWithin("DriverLicenseService.getAll", 1, 2, () -> driverLicenseService.getAll());
+        budget.assertWithin("DriverLicenseService.getPage", 1, 2, () -> driverLicenseService.getPage(null, 100));
+        budget.assertWithin("DriverLicenseService.update", 3, 2, () -> driverLicenseService.update(driverLicense));
+        budget.assertWithin("DriverLicenseService.delete", 3, 1,
+                () -> driverLicenseService.delete(driverLicense.getId()));
+    }
+
+    @Test
+    void roleBudgetTest() throws Exception {
+        //Init
+        Role removable = roleRepository.save(new Role(UUID.randomUUID(), "GUEST", "GUEST"));
+        role.setDescription("CHANGED");
+
+        //Then
+        budget.assertWithin("RoleService.create", 3, 3,
+                () -> roleService.create(new Role(UUID.randomUUID(), "MANAGER", "MANAGER")));
+        budget.assertWithin("RoleService.getById", 1, 1, () -> roleService.getById(role.getId()));
+        budget.assertWithin("RoleService.getByIds", 1, 2,
+                () -> roleService.getByIds(Arrays.asList(role.getId(), removable.getId())));
+        budget.assertWithin("RoleService.getAll", 1, 3, () -> roleService.getAll());
+        budget.assertWithin("RoleService.getPage", 1, 3, () -> roleService.getPage(null, 100));
+        budget.assertWithin("RoleService.getRole", 0, 0, () -> {
+            roleService.getRole("USER");
+            return roleService.getRole("USER");
+        });
+        budget.assertWithin("RoleService.update", 3, 4, () -> roleService.update(role));
+        budget.assertWithin("RoleService.delete", 3, 3, () -> roleService.delete(removable.getId()));
+    }
+
+    private static User newUser(final boolean verified) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return new User(UUID.randomUUID(), "TEST", "TEST", "TEST", "login_" + suffix,
+                "test_password", verified, LocalDateTime.now(), suffix + "@gmail.com", "38067" + suffix,
+                Sex.MALE, LocalDateTime.now(), "url", null, null, null);
+    }
+
+    private static Car newCar(final User owner) {
+        String suffix = UUID.randomUUID().toString().replace("-", "");
+        Car car = new Car(UUID.randomUUID(), "TEST", "TEST", "TEST", "TEST", LocalDateTime.now(),
+                "TEST", "TEST", "TEST", null, new HashSet<>());
+        car.setVin(suffix.substring(0, 17));
+        car.setNumber(suffix.substring(17, 25));
+        car.setUser(owner);
+        return car;
+    }
+}
\ No newline at end of file
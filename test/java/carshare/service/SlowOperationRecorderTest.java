@@ -0,0 +1,120 @@
+package carshare.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SlowOperationRecorderTest {
+
+    static class SampleService {
+        public String login(final String login, final String password) {
+            return login;
+        }
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordTest() throws Throwable {
+        //Init
+        Path file = dir.resolve("slow.log");
+        SlowOperationRecorder recorder = new SlowOperationRecorder(Duration.ZERO, 50, true, file.toString(),
+                DataSize.ofMegabytes(1), 2, 10);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(SampleService.class.getMethod("login", String.class, String.class));
+        when(signature.getParameterNames()).thenReturn(new String[]{"login", "password"});
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new SampleService());
+        when(joinPoint.getArgs()).thenReturn(new Object[]{"user_login", "user_password"});
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            JdbcCallStats.current().addStatement("select id from users where login=?", 1000);
+            return "user_login";
+        });
+
+        //When
+        recorder.record(joinPoint);
+        recorder.close();
+
+        //Then
+        String line = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(line.contains("\"method\":\"SampleService.login\""));
+        assertTrue(line.contains("\"args\":[\"user_login\",\"***\"]"));
+        assertTrue(line.contains("\"sql\":\"select id from users where login=?\""));
+        assertFalse(line.contains("user_password"));
+        assertTrue(JdbcCallStats.current().stopCapture().isEmpty());
+    }
+
+    @Test
+    void recordLazyLoadTest() throws Throwable {
+        //Init
+        Path file = dir.resolve("slow.log");
+        SlowOperationRecorder recorder = new SlowOperationRecorder(Duration.ZERO, 50, true, file.toString(),
+                DataSize.ofMegabytes(1), 2, 10);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(SampleService.class.getMethod("login", String.class, String.class));
+        when(signature.getParameterNames()).thenReturn(new String[]{"login", "password"});
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new SampleService());
+        when(joinPoint.getArgs()).thenReturn(new Object[]{"user_login", "user_password"});
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            JdbcCallStats stats = JdbcCallStats.current();
+            stats.addStatement("select id from users where login=?", 1000);
+            stats.enterLazyLoad();
+            stats.addStatement("select role_id from user_roles where user_id=?", 1000);
+            stats.exitLazyLoad();
+            stats.addStatement("update users set login=? where id=?", 1000);
+            return "user_login";
+        });
+
+        //When
+        recorder.record(joinPoint);
+        recorder.close();
+
+        //Then
+        String line = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(line.contains("\"sql\":\"select role_id from user_roles where user_id=?\",\"lazyLoad\":"));
+        assertEquals(line.indexOf("\"lazyLoad\""), line.lastIndexOf("\"lazyLoad\""));
+    }
+
+    @Test
+    void rotateTest() throws Exception {
+        //Init
+        Path file = dir.resolve("slow.log");
+        SlowOperationLog log = new SlowOperationLog(file, 10, 2, 10);
+
+        //When
+        for (int i = 0; i < 5; i++) {
+            assertTrue(log.offer("operation " + i));
+        }
+        log.close();
+
+        //Then
+        assertTrue(Files.exists(dir.resolve("slow.log.1")));
+        assertTrue(Files.exists(dir.resolve("slow.log.2")));
+        assertFalse(Files.exists(dir.resolve("slow.log.3")));
+    }
+
+    @Test
+    void sanitizeTest() {
+        UUID id = UUID.randomUUID();
+        assertEquals("***", SlowOperationRecorder.sanitize("newPassword", "secret"));
+        assertEquals("***", SlowOperationRecorder.sanitize(null, "secret"));
+        assertEquals("B2", SlowOperationRecorder.sanitize("name", "B2"));
+        assertEquals(id.toString(), SlowOperationRecorder.sanitize("carId", id));
+        assertEquals("ArrayList[2]", SlowOperationRecorder.sanitize("cars", new ArrayList<>(Arrays.asList(1, 2))));
+    }
+}
\ No newline at end of file
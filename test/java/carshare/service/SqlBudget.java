@@ -0,0 +1,82 @@
+package carshare.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import javax.persistence.EntityManagerFactory;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test helper which counts SQL statements and fetched JDBC rows of one action and fails when action goes past
+ * its budget. Statements are prepared statements from Hibernate statistics of the whole session factory,
+ * so work of async methods on other threads is counted too. Rows are rows read from result sets
+ * by JdbcInstrumentation on calling thread, so methods which read on other threads have no row budget.
+ * <p>
+ * With system property carshare.sql-budget.record=true measured counts are logged instead of checked,
+ * they are used to update budgets after intended change of queries.
+ */
+class SqlBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlBudget.class);
+    private static final boolean RECORD = Boolean.getBoolean("carshare.sql-budget.record");
+
+    private final Statistics statistics;
+
+    SqlBudget(final EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    /**
+     * Action of service which is measured
+     *
+     * @param <T>                               Type of action result
+     */
+    @FunctionalInterface
+    interface SqlAction<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Method run action and check amount of SQL statements only,
+     * it is used for methods which read rows on other threads
+     *
+     * @param method                            Name of measured method for failure message
+     * @param maxStatements                     Budget of prepared SQL statements
+     * @param action                            Measured action
+     * @return                                  Result of action
+     */
+    <T> T assertWithin(final String method, final long maxStatements, final SqlAction<T> action) throws Exception {
+        return assertWithin(method, maxStatements, -1, action);
+    }
+
+    /**
+     * Method run action and check amount of SQL statements and fetched rows
+     *
+     * @param method                            Name of measured method for failure message
+     * @param maxStatements                     Budget of prepared SQL statements
+     * @param maxRows                           Budget of rows fetched from result sets on calling thread,
+     *                                          negative if rows are not checked
+     * @param action                            Measured action
+     * @return                                  Result of action
+     */
+    <T> T assertWithin(final String method, final long maxStatements, final long maxRows,
+                       final SqlAction<T> action) throws Exception {
+        JdbcCallStats stats = JdbcCallStats.current();
+        statistics.clear();
+        long rowsBefore = stats.getRows();
+        T result = action.run();
+        long statements = statistics.getPrepareStatementCount();
+        long rows = stats.getRows() - rowsBefore;
+        if (RECORD) {
+            LOGGER.info("SQL budget of {}: {} statements, {} rows", method, statements, rows);
+            return result;
+        }
+        assertTrue(statements <= maxStatements,
+                method + " issued " + statements + " SQL statements, budget is " + maxStatements);
+        assertTrue(maxRows < 0 || rows <= maxRows,
+                method + " fetched " + rows + " rows, budget is " + maxRows);
+        return result;
+    }
+}
\ No newline at end of file
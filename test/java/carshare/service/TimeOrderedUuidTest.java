@@ -0,0 +1,81 @@
+package carshare.service;
+
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedUuidTest {
+
+    @Test
+    void versionAndTimestampTest() {
+        //Init
+        Instant before = Instant.ofEpochMilli(System.currentTimeMillis());
+
+        //When
+        UUID uuid = TimeOrderedUuid.next();
+
+        //Then
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertFalse(TimeOrderedUuid.timestampOf(uuid).isBefore(before));
+        assertTrue(TimeOrderedUuid.minFor(before).compareTo(uuid) <= 0);
+    }
+
+    @Test
+    void monotonicTest() {
+        //Init
+        UUID previous = TimeOrderedUuid.next();
+
+        for (int i = 0; i < 100000; i++) {
+            //When
+            UUID current = TimeOrderedUuid.next();
+
+            //Then
+            assertTrue(previous.compareTo(current) < 0, "UUID is not greater than previous one");
+            previous = current;
+        }
+    }
+
+    @Test
+    void concurrentUniqueTest() throws Exception {
+        //Init
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Set<UUID> all = ConcurrentHashMap.newKeySet();
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        //When
+        for (int thread = 0; thread < 4; thread++) {
+            results.add(executor.submit(() -> {
+                UUID previous = TimeOrderedUuid.next();
+                all.add(previous);
+                boolean ordered = true;
+                for (int i = 0; i < 50000; i++) {
+                    UUID current = TimeOrderedUuid.next();
+                    ordered &= previous.compareTo(current) < 0;
+                    all.add(current);
+                    previous = current;
+                }
+                return ordered;
+            }));
+        }
+        Set<Boolean> ordered = new HashSet<>();
+        for (Future<Boolean> result : results) {
+            ordered.add(result.get());
+        }
+        executor.shutdown();
+
+        //Then
+        assertEquals(4 * 50001, all.size());
+        assertEquals(1, ordered.size());
+        assertTrue(ordered.contains(true));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package carshare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class UniquenessGuardTest {
+
+    @TempDir
+    Path dir;
+
+    private EntityManager entityManager;
+    private TypedQuery<Object> query;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        query = mock(TypedQuery.class);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        doReturn(query).when(entityManager).createQuery(any(CriteriaQuery.class));
+    }
+
+    private UniquenessGuard guard() {
+        return new UniquenessGuard(entityManager, dir.resolve("uniqueness.bloom").toString(), 1000, 0.01);
+    }
+
+    private UniquenessGuard builtGuard(final String storedValue) {
+        Tuple row = mock(Tuple.class);
+        when(row.get(0, UUID.class)).thenReturn(UUID.randomUUID());
+        when(row.get(1, String.class)).thenReturn(storedValue);
+        when(query.getResultList()).thenReturn(Collections.singletonList(row));
+        UniquenessGuard guard = guard();
+        guard.rebuildMissing();
+        return guard;
+    }
+
+    @Test
+    void databaseFallbackBeforeFilterIsBuiltTest() {
+        //Init
+        UniquenessGuard guard = guard();
+        when(query.getResultList()).thenReturn(Collections.singletonList(UUID.randomUUID()));
+
+        //When
+        boolean taken = guard.isTaken(UniqueField.CAR_VIN, "VIN_1");
+
+        //Then
+        assertTrue(taken);
+        assertEquals(1, guard.getDatabaseLookups());
+        assertEquals(0, guard.getSkippedLookups());
+        assertEquals(0, guard.getFalsePositives());
+    }
+
+    @Test
+    void rebuildMissingTest() {
+        //Init
+        UniquenessGuard guard = builtGuard("VIN_1");
+        when(query.getResultList()).thenReturn(Collections.singletonList(UUID.randomUUID()));
+
+        //When
+        boolean newValueTaken = guard.isTaken(UniqueField.CAR_VIN, "VIN_2");
+        boolean storedValueTaken = guard.isTaken(UniqueField.CAR_VIN, "VIN_1");
+
+        //Then
+        assertFalse(newValueTaken);
+        assertTrue(storedValueTaken);
+        assertEquals(1, guard.getSkippedLookups());
+        assertEquals(1, guard.getDatabaseLookups());
+    }
+
+    @Test
+    void falsePositiveTest() {
+        //Init
+        UniquenessGuard guard = builtGuard("VIN_1");
+        when(query.getResultList()).thenReturn(Collections.emptyList());
+
+        //When
+        boolean taken = guard.isTaken(UniqueField.CAR_VIN, "VIN_1");
+
+        //Then
+        assertFalse(taken);
+        assertEquals(1, guard.getDatabaseLookups());
+        assertEquals(1, guard.getFalsePositives());
+    }
+
+    @Test
+    void snapshotTest() {
+        //Init
+        builtGuard("VIN_1").saveSnapshot();
+        Path snapshot = dir.resolve("uniqueness.bloom");
+        assertTrue(Files.exists(snapshot), "Snapshot is not written");
+        clearInvocations(entityManager);
+        UniquenessGuard loaded = guard();
+
+        //When
+        loaded.loadSnapshot();
+        loaded.rebuildMissing();
+        boolean taken = loaded.isTaken(UniqueField.CAR_VIN, "VIN_2");
+
+        //Then
+        assertFalse(taken);
+        assertFalse(Files.exists(snapshot), "Snapshot is not deleted after load");
+        assertEquals(1, loaded.getSkippedLookups());
+        verify(entityManager, never()).createQuery(any(CriteriaQuery.class));
+    }
+}
\ No newline at end of file
@@ -10,10 +10,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.doNothing;
@@ -28,6 +31,10 @@ class UserServiceTest {
     private RoleService roleService;
     @MockBean
     private PasswordEncoder passwordEncoder;
+    @MockBean
+    private UserQueries userQueries;
+    @MockBean
+    private UniquenessGuard uniquenessGuard;
 
     private final UserService userService;
 
@@ -66,6 +73,66 @@ class UserServiceTest {
         verify(userRepository, times(1)).save(user);
     }
 
+    @Test
+    void createAsyncTest() {
+        //Init
+        when(userRepository.save(user)).thenReturn(user);
+        when(passwordEncoder.encode(user.getPassword())).thenReturn(user.getPassword());
+
+        //When
+        User createdUser = userService.createAsync(user).join();
+
+        //Then
+        assertNotNull(createdUser, "User is not created");
+        assertEquals(user.getLogin(), createdUser.getLogin());
+        verify(roleService, times(1)).getRole("USER");
+        verify(passwordEncoder, times(1)).encode(user.getPassword());
+        verify(userRepository, times(1)).save(user);
+    }
+
+    @Test
+    void createAsyncSavesOutsideHashingPoolTest() {
+        //Init
+        AtomicReference<String> saveThread = new AtomicReference<>();
+        when(userRepository.save(user)).thenAnswer(invocation -> {
+            saveThread.set(Thread.currentThread().getName());
+            return user;
+        });
+        when(passwordEncoder.encode(user.getPassword())).thenReturn(user.getPassword());
+
+        //When
+        userService.createAsync(user).join();
+
+        //Then
+        assertNotNull(saveThread.get(), "User is not saved");
+        assertTrue(saveThread.get().startsWith("user-save-"), "User is saved on " + saveThread.get());
+    }
+
+    @Test
+    void createAsyncIfUserIsNullTest() {
+        //Init
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> userService.createAsync(null).join());
+
+        //Then
+        assertTrue(exception.getCause() instanceof UserCreationException);
+        verify(userRepository, times(0)).save(user);
+    }
+
+    @Test
+    void createIfLoginIsTakenTest() {
+        //Init
+        when(uniquenessGuard.isTaken(UniqueField.USER_LOGIN, user.getLogin())).thenReturn(true);
+
+        //When
+        Throwable exception = assertThrows(UserCreationException.class, () -> userService.create(user));
+
+        //Then
+        assertEquals("User with this login already exists.", exception.getMessage());
+        verify(passwordEncoder, times(0)).encode(user.getPassword());
+        verify(userRepository, times(0)).save(user);
+    }
+
     @Test
     void createIfUserIsNullTest() {
         //Init
@@ -79,7 +146,6 @@ class UserServiceTest {
     @Test
     void getByIdTest() throws UserNotFoundException {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(true);
         when(userRepository.findById(user.getId())).thenReturn(Optional.ofNullable(user));
 
         //When
@@ -91,19 +157,19 @@ class UserServiceTest {
         assertEquals(user.getLogin(), userById.getLogin());
         assertEquals(user.getMobilePhone(), userById.getMobilePhone());
         assertEquals(user.getEmail(), userById.getEmail());
-        verify(userRepository, times(1)).existsById(user.getId());
+        verify(userRepository, times(0)).existsById(user.getId());
         verify(userRepository, times(1)).findById(user.getId());
     }
 
     @Test
     void getByIdIfUserNotExistTest() {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(false);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(UserNotFoundException.class, () -> userService.getById(user.getId()));
-        verify(userRepository, times(1)).existsById(user.getId());
-        verify(userRepository, times(0)).findById(user.getId());
+        verify(userRepository, times(1)).findById(user.getId());
+        verify(userRepository, times(0)).existsById(user.getId());
     }
 
     @Test
@@ -112,7 +178,7 @@ class UserServiceTest {
         user.setLogin("NEW TEST");
         user.setMobilePhone("NEW TEST");
         user.setEmail("NEW TEST");
-        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.ofNullable(user));
         when(userRepository.save(user)).thenReturn(user);
 
         //When
@@ -123,27 +189,27 @@ class UserServiceTest {
         assertEquals(user.getLogin(), updatedUser.getLogin());
         assertEquals(user.getMobilePhone(), updatedUser.getMobilePhone());
         assertEquals(user.getEmail(), updatedUser.getEmail());
-        verify(userRepository, times(1)).existsById(user.getId());
+        verify(userRepository, times(1)).findById(user.getId());
         verify(userRepository, times(1)).save(user);
     }
 
     @Test
     void updateIfUserNotExistTest() {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(false);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
         when(userRepository.save(user)).thenReturn(user);
 
         //Then
         assertThrows(UserNotFoundException.class, () -> userService.update(user));
-        verify(userRepository, times(1)).existsById(user.getId());
+        verify(userRepository, times(1)).findById(user.getId());
         verify(userRepository, times(0)).save(user);
     }
 
     @Test
     void deleteTest() throws UserNotFoundException {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(true);
-        doNothing().when(userRepository).deleteById(user.getId());
+        when(userRepository.findById(user.getId())).thenReturn(Optional.ofNullable(user));
+        doNothing().when(userRepository).delete(user);
 
         //When
         UUID deletedUserId = userService.delete(user.getId());
@@ -151,44 +217,81 @@ class UserServiceTest {
         //Then
         assertNotNull(deletedUserId, "User is not deleted.");
         assertEquals(user.getId(), deletedUserId);
-        verify(userRepository, times(1)).existsById(user.getId());
-        verify(userRepository, times(1)).deleteById(user.getId());
+        verify(userRepository, times(1)).findById(user.getId());
+        verify(userRepository, times(1)).delete(user);
     }
 
     @Test
     void deleteIfUserNotExist() {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(false);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(UserNotFoundException.class, () -> userService.delete(user.getId()));
-        verify(userRepository, times(1)).existsById(user.getId());
-        verify(userRepository, times(0)).deleteById(user.getId());
+        verify(userRepository, times(1)).findById(user.getId());
+        verify(userRepository, times(0)).delete(user);
     }
 
     @Test
     void isVerifiedTest() throws UserNotFoundException {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(true);
-        when(userRepository.findById(user.getId())).thenReturn(Optional.ofNullable(user));
+        when(userQueries.findVerified(user.getId())).thenReturn(Optional.of(false));
 
         //When
         boolean isVerified = userService.isVerified(user.getId());
 
         //Then
         assertFalse(isVerified);
-        verify(userRepository, times(1)).existsById(user.getId());
-        verify(userRepository, times(1)).findById(user.getId());
+        verify(userQueries, times(1)).findVerified(user.getId());
+        verify(userRepository, times(0)).findById(user.getId());
     }
 
     @Test
     void isVerifiedIfUserNotExistTest() {
         //Init
-        when(userRepository.existsById(user.getId())).thenReturn(false);
+        when(userQueries.findVerified(user.getId())).thenReturn(Optional.empty());
 
         //Then
         assertThrows(UserNotFoundException.class, () -> userService.isVerified(user.getId()));
-        verify(userRepository, times(1)).existsById(user.getId());
-        verify(userRepository, times(0)).findById(user.getId());
+        verify(userQueries, times(1)).findVerified(user.getId());
+    }
+
+    @Test
+    void isVerifiedFromCacheTest() throws UserNotFoundException {
+        //Init
+        when(userQueries.findVerified(user.getId())).thenReturn(Optional.of(true));
+
+        //When
+        userService.isVerified(user.getId());
+        boolean isVerified = userService.isVerified(user.getId());
+
+        //Then
+        assertTrue(isVerified);
+        verify(userQueries, times(1)).findVerified(user.getId());
+    }
+
+    @Test
+    void isVerifiedAfterUpdateTest() throws UserNotFoundException {
+        //Init
+        when(userQueries.findVerified(user.getId())).thenReturn(Optional.of(false), Optional.of(true));
+        when(userRepository.findById(user.getId())).thenReturn(Optional.ofNullable(user));
+        when(userRepository.save(user)).thenReturn(user);
+
+        //When
+        boolean verifiedBeforeUpdate = userService.isVerified(user.getId());
+        userService.update(user);
+        boolean verifiedAfterUpdate = userService.isVerified(user.getId());
+
+        //Then
+        assertFalse(verifiedBeforeUpdate);
+        assertTrue(verifiedAfterUpdate);
+        verify(userQueries, times(2)).findVerified(user.getId());
+    }
+
+    @Test
+    void loginIfUserNotExistTest() {
+        //Then
+        assertThrows(BadCredentialsException.class, () -> userService.login("missing_login", "test_password"));
+        verify(passwordEncoder, times(1)).matches(eq("test_password"), any());
     }
 }
\ No newline at end of file